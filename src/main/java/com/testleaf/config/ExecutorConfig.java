@@ -0,0 +1,129 @@
+package com.testleaf.config;
+
+import com.testleaf.llm.LLMRequestContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Dedicated, bounded executors so background work never competes for servlet threads.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * CPU-bound spec parsing; sized to the cores. When the queue is full the submitting
+     * thread parses the spec itself, which throttles bulk uploads instead of failing them.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor specParseExecutor(
+            @Value("${spec.parse.threads:0}") int threads,
+            @Value("${spec.parse.queue-capacity:256}") int queueCapacity) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("spec-parse-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Outbound LLM calls; the pool size is the cap on concurrent requests to the provider.
+     * These threads mostly wait on the network, so they are not tied to the core count.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor llmExecutor(
+            @Value("${llm.max-concurrency:4}") int maxConcurrency,
+            @Value("${llm.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("llm-");
+        executor.setTaskDecorator(LLMRequestContext::propagate);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs the provider calls of hedged LLM requests (see LLMHedgePolicy): the primary and its
+     * duplicate go out in parallel while the calling thread waits for the first answer. Only
+     * threads blocked on the network, so it is sized like the HTTP connection pool.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor llmHedgeExecutor(
+            @Value("${llm.http.max-connections:50}") int threads,
+            @Value("${llm.hedge.queue-capacity:1000}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("llm-hedge-");
+        executor.setTaskDecorator(LLMRequestContext::propagate);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Runs the long LLM-backed requests (controllers return CompletableFutures) and relays
+     * the SSE streams, so servlet threads are handed back right away. When it is full,
+     * requests are rejected with 503 rather than queued without limit. Not used for the
+     * provider calls of chunked generation: those wait on llmExecutor from here, and sharing
+     * one pool could deadlock (and streams would queue behind a whole spec's chunks).
+     */
+    @Bean
+    public ThreadPoolTaskExecutor requestExecutor(
+            @Value("${llm.requests.threads:32}") int threads,
+            @Value("${llm.requests.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("llm-request-");
+        executor.setTaskDecorator(LLMRequestContext::propagate);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Compiles and runs generated tests for /api/runTests. CPU heavy, so sized to the cores.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor testRunExecutor(
+            @Value("${tests.run.threads:0}") int threads,
+            @Value("${tests.run.queue-capacity:50}") int queueCapacity) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(size);
+        executor.setMaxPoolSize(size);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("test-run-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Drives batch generation jobs (see GenerationJobService), one thread per running job.
+     * The provider calls of a job go to llmExecutor, so this pool only bounds how many jobs
+     * make progress at once; further jobs wait in the queue.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor jobExecutor(
+            @Value("${jobs.max-concurrent:2}") int maxConcurrent,
+            @Value("${jobs.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrent);
+        executor.setMaxPoolSize(maxConcurrent);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("job-");
+        executor.initialize();
+        return executor;
+    }
+}
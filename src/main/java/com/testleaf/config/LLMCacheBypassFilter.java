@@ -0,0 +1,33 @@
+package com.testleaf.config;
+
+import com.testleaf.llm.LLMRequestContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Lets a caller force a fresh LLM answer with "Cache-Control: no-cache" or "?noCache=true".
+ * The new response still replaces the cached one.
+ */
+@Component
+public class LLMCacheBypassFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String cacheControl = request.getHeader("Cache-Control");
+        boolean bypass = "true".equalsIgnoreCase(request.getParameter("noCache"))
+                || (cacheControl != null && cacheControl.toLowerCase().contains("no-cache"));
+        LLMRequestContext.setCacheBypassed(bypass);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            LLMRequestContext.setCacheBypassed(false);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.testleaf.controller;
+
+import com.testleaf.llm.LLMPromptTooLargeException;
+import com.testleaf.llm.LLMProviderException;
+import com.testleaf.llm.LLMUnavailableException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs a controller body on a bounded executor and returns the future to Spring MVC, which
+ * releases the servlet thread until it completes. A full executor answers 503 straight away.
+ */
+final class AsyncRequests {
+
+    private AsyncRequests() {
+    }
+
+    static CompletableFuture<ResponseEntity<?>> supply(Executor executor, Supplier<ResponseEntity<?>> handler) {
+        try {
+            return CompletableFuture.supplyAsync(handler, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body("Server is busy with other generations. Please retry shortly."));
+        }
+    }
+
+    /**
+     * 413 for input that does not fit one LLM call; nothing was sent to the provider.
+     */
+    static ResponseEntity<String> promptTooLarge(LLMPromptTooLargeException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(e.getMessage());
+    }
+
+    /**
+     * 503 with Retry-After while the provider's circuit is open (nothing was sent), 502 when
+     * the provider failed the call even after retries.
+     */
+    static ResponseEntity<String> providerFailed(LLMProviderException e) {
+        if (e instanceof LLMUnavailableException unavailable) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(unavailable.getRetryAfterSeconds()))
+                    .body(e.getMessage());
+        }
+        System.err.println("⚠️ " + e.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(e.getMessage());
+    }
+}
@@ -1,42 +1,79 @@
 package com.testleaf.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.testleaf.llm.CodeFenceExtractor;
 import com.testleaf.llm.LLMConverterService;
+import com.testleaf.llm.LLMPromptTooLargeException;
+import com.testleaf.llm.LLMProviderException;
 import com.testleaf.llm.TestCodeGenerator;
 
-import lombok.RequiredArgsConstructor;
-
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("/api/convert")
-@RequiredArgsConstructor
 @CrossOrigin(origins = "http://localhost:3000")
 public class ConversionController {
 
     private final LLMConverterService converterService;
     private final TestCodeGenerator testCodeGenerator;
+    private final ThreadPoolTaskExecutor requestExecutor;
+
+    public ConversionController(LLMConverterService converterService,
+                                TestCodeGenerator testCodeGenerator,
+                                @Qualifier("requestExecutor") ThreadPoolTaskExecutor requestExecutor) {
+        this.converterService = converterService;
+        this.testCodeGenerator = testCodeGenerator;
+        this.requestExecutor = requestExecutor;
+    }
 
     // Endpoint to convert Selenium Java code to Playwright TypeScript code
     @PostMapping("/seleniumToPlaywright")
-    public ResponseEntity<String> convertSeleniumToPlaywright(@RequestBody ConversionRequest request) {
-        try {
-            String llmResponse = converterService.convertSeleniumToPlaywright(request.getSeleniumCode());
+    public CompletableFuture<ResponseEntity<?>> convertSeleniumToPlaywright(@RequestBody ConversionRequest request) {
+        return AsyncRequests.supply(requestExecutor, () -> {
+            try {
+                String llmResponse = converterService.convertSeleniumToPlaywright(request.getSeleniumCode());
             
-            // Extract final typescript code
-            String finalCode = testCodeGenerator.extractTypescriptCode(llmResponse);
+                // Extract final typescript code
+                String finalCode = testCodeGenerator.extractTypescriptCode(llmResponse);
+
+                return ResponseEntity.ok(finalCode);
+            } catch (LLMPromptTooLargeException e) {
+                return AsyncRequests.promptTooLarge(e);
+            } catch (LLMProviderException e) {
+                return AsyncRequests.providerFailed(e);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return ResponseEntity.status(500).body("Error converting code: " + e.getMessage());
+            }
+        });
+    }
 
-            return ResponseEntity.ok(finalCode);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(500).body("Error converting code: " + e.getMessage());
+    /**
+     * Streaming variant: relays the conversion over SSE as it is generated ("token" events),
+     * then sends the extracted TypeScript in a closing "code" event.
+     */
+    @PostMapping(value = "/seleniumToPlaywright/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter convertSeleniumToPlaywrightStream(@RequestBody ConversionRequest request) {
+        if (request.getSeleniumCode() == null || request.getSeleniumCode().isEmpty()) {
+            return SseStreams.error(HttpStatus.BAD_REQUEST, "No valid Selenium code provided.");
         }
+        return SseStreams.stream(requestExecutor,
+                onToken -> converterService.convertSeleniumToPlaywright(request.getSeleniumCode(), onToken),
+                CodeFenceExtractor.typescript(), Function.identity());
     }
 
     // Stub endpoint to compile Selenium code (dummy implementation)
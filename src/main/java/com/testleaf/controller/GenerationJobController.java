@@ -0,0 +1,149 @@
+package com.testleaf.controller;
+
+import com.testleaf.jobs.GenerationJob;
+import com.testleaf.jobs.GenerationJobService;
+import com.testleaf.parser.ApiOperation;
+import com.testleaf.parser.ParsedSpec;
+import com.testleaf.parser.ParsedSpecCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Batch test generation for whole specs or large selections. A job runs in the background
+ * and survives restarts; poll it or subscribe to its events, then download the classes.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@CrossOrigin(origins = "http://localhost:3000")
+@RequiredArgsConstructor
+public class GenerationJobController {
+
+    private final GenerationJobService generationJobService;
+    private final ParsedSpecCache parsedSpecCache;
+
+    /**
+     * Starts a generation job and returns it right away (202) with its id.
+     *
+     * Example usage:
+     *  POST /api/jobs
+     *  Body (raw JSON):
+     *  {
+     *    "specId": "<X-Spec-Id from /api/parseSwagger>",
+     *    "operations": ["GET /pet/{petId}", "addPet"],   (optional, default: the whole spec)
+     *    "testTypes": ["positive", "negative"]
+     *  }
+     */
+    @PostMapping
+    public ResponseEntity<?> submit(@RequestBody TestGenerationController.ApiDetailsRequest request) {
+        ParsedSpec spec = parsedSpecCache.find(request.getSpecId());
+        if (spec == null) {
+            return SpecCatalogController.specNotFound(request.getSpecId());
+        }
+        List<ApiOperation> operations = TestGenerationController.selectOperations(spec, request.getOperations());
+        if (operations.isEmpty()) {
+            return ResponseEntity.badRequest().body("None of the selected operations exist in spec " + request.getSpecId());
+        }
+        try {
+            GenerationJob job = generationJobService.submit(spec, operations, request.getTestTypes());
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/api/jobs/" + job.getId())
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .body("Too many generation jobs are queued. Please retry shortly.");
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body("Error starting generation job: " + e.getMessage());
+        }
+    }
+
+    /**
+     * All jobs, newest first.
+     */
+    @GetMapping
+    public List<GenerationJob> listJobs() {
+        return generationJobService.list();
+    }
+
+    /**
+     * Job status with per-chunk progress.
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable String jobId) {
+        GenerationJob job = generationJobService.get(jobId);
+        if (job == null) {
+            return jobNotFound(jobId);
+        }
+        return ResponseEntity.ok(job);
+    }
+
+    /**
+     * Progress over SSE: a "progress" event with the job after every finished chunk, then
+     * "done" when the job completes or is cancelled.
+     */
+    @GetMapping(value = "/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable String jobId) {
+        GenerationJob job = generationJobService.get(jobId);
+        if (job == null) {
+            return SseStreams.error(HttpStatus.NOT_FOUND, "Job " + jobId + " not found.");
+        }
+        return generationJobService.subscribe(job);
+    }
+
+    /**
+     * Cancels the job. Chunks already sent to the LLM still finish and are kept; the job is
+     * CANCELLED once they have returned.
+     */
+    @DeleteMapping("/{jobId}")
+    public ResponseEntity<?> cancel(@PathVariable String jobId) {
+        GenerationJob job = generationJobService.get(jobId);
+        if (job == null) {
+            return jobNotFound(jobId);
+        }
+        if (!generationJobService.cancel(jobId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Job " + jobId + " has already finished or is being cancelled.");
+        }
+        return ResponseEntity.accepted().body(job);
+    }
+
+    /**
+     * The generated classes as a zip (automation/tests/*.java plus job.json). Available once
+     * the job has finished; a cancelled job's archive holds the classes completed so far.
+     */
+    @GetMapping("/{jobId}/archive")
+    public ResponseEntity<byte[]> archive(@PathVariable String jobId) {
+        GenerationJob job = generationJobService.get(jobId);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(("Job " + jobId + " not found.").getBytes());
+        }
+        if (!job.isFinished()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(("Job " + jobId + " is still " + job.getStatus() + ".").getBytes());
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            generationJobService.writeArchive(job, out);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=tests-" + jobId + ".zip")
+                    .body(out.toByteArray());
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body(("Error building archive: " + e.getMessage()).getBytes());
+        }
+    }
+
+    private static ResponseEntity<String> jobNotFound(String jobId) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Job " + jobId + " not found.");
+    }
+}
@@ -0,0 +1,148 @@
+package com.testleaf.controller;
+
+import com.testleaf.parser.OperationCatalog;
+import com.testleaf.parser.ParsedSpec;
+import com.testleaf.parser.ParsedSpecCache;
+import com.testleaf.parser.SchemaResolver;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Browse the operation catalog of a previously uploaded spec, identified by the
+ * X-Spec-Id returned from /api/parseSwagger.
+ */
+@RestController
+@RequestMapping("/api/specs")
+@CrossOrigin(origins = "http://localhost:3000")
+@RequiredArgsConstructor
+public class SpecCatalogController {
+
+    private final ParsedSpecCache parsedSpecCache;
+
+    /**
+     * Spec overview: title, version, operation count and tags.
+     */
+    @GetMapping("/{specId}")
+    public ResponseEntity<?> getSpec(@PathVariable String specId) {
+        ParsedSpec spec = parsedSpecCache.find(specId);
+        if (spec == null) {
+            return specNotFound(specId);
+        }
+        OperationCatalog catalog = spec.getCatalog();
+        return ResponseEntity.ok(new SpecSummary(specId, catalog.getTitle(), catalog.getVersion(),
+                catalog.size(), catalog.tagCounts()));
+    }
+
+    /**
+     * Pages through the operations, optionally filtered.
+     *
+     * Example usage:
+     *  GET /api/specs/{specId}/operations?tag=pet&amp;method=GET&amp;page=0&amp;size=50
+     */
+    @GetMapping("/{specId}/operations")
+    public ResponseEntity<?> getOperations(@PathVariable String specId,
+                                           @RequestParam(required = false) String tag,
+                                           @RequestParam(required = false) String pathPrefix,
+                                           @RequestParam(required = false) String method,
+                                           @RequestParam(required = false) String operationId,
+                                           @RequestParam(defaultValue = "0") int page,
+                                           @RequestParam(defaultValue = "50") int size) {
+        ParsedSpec spec = parsedSpecCache.find(specId);
+        if (spec == null) {
+            return specNotFound(specId);
+        }
+        return ResponseEntity.ok(spec.getCatalog().page(tag, pathPrefix, method, operationId, page, size));
+    }
+
+    /**
+     * The filtered operations in the plain-text apiDetails form accepted by /api/generateTests.
+     */
+    @GetMapping(value = "/{specId}/apiDetails", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<?> getApiDetails(@PathVariable String specId,
+                                           @RequestParam(required = false) String tag,
+                                           @RequestParam(required = false) String pathPrefix,
+                                           @RequestParam(required = false) String method,
+                                           @RequestParam(required = false) String operationId) {
+        ParsedSpec spec = parsedSpecCache.find(specId);
+        if (spec == null) {
+            return specNotFound(specId);
+        }
+        OperationCatalog catalog = spec.getCatalog();
+        return ResponseEntity.ok(OperationCatalog.toApiDetails(catalog.query(tag, pathPrefix, method, operationId)));
+    }
+
+    /**
+     * A component schema: its signature, the schemas it reaches and a generated example.
+     * Resolved lazily and memoized per spec.
+     */
+    @GetMapping("/{specId}/schemas/{name}")
+    public ResponseEntity<?> getSchema(@PathVariable String specId, @PathVariable String name) {
+        ParsedSpec spec = parsedSpecCache.find(specId);
+        if (spec == null) {
+            return specNotFound(specId);
+        }
+        SchemaResolver resolver = spec.getSchemaResolver();
+        try {
+            if (resolver.schema(name) == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Schema " + name + " not found.");
+            }
+        } catch (IllegalStateException e) {
+            return ResponseEntity.unprocessableEntity().body(e.getMessage());
+        }
+        return ResponseEntity.ok(new SchemaView(name, resolver.signature(name),
+                resolver.referencedSchemas(List.of(name)), resolver.example(name)));
+    }
+
+    static ResponseEntity<String> specNotFound(String specId) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body("Spec " + specId + " not found. Upload it again via /api/parseSwagger.");
+    }
+
+    public static class SchemaView {
+        private final String name;
+        private final String signature;
+        private final Set<String> references;
+        private final Object example;
+
+        public SchemaView(String name, String signature, Set<String> references, Object example) {
+            this.name = name;
+            this.signature = signature;
+            this.references = references;
+            this.example = example;
+        }
+
+        public String getName() { return name; }
+        public String getSignature() { return signature; }
+        public Set<String> getReferences() { return references; }
+        public Object getExample() { return example; }
+    }
+
+    public static class SpecSummary {
+        private final String specId;
+        private final String title;
+        private final String version;
+        private final int operationCount;
+        private final Map<String, Integer> tags;
+
+        public SpecSummary(String specId, String title, String version, int operationCount, Map<String, Integer> tags) {
+            this.specId = specId;
+            this.title = title;
+            this.version = version;
+            this.operationCount = operationCount;
+            this.tags = tags;
+        }
+
+        public String getSpecId() { return specId; }
+        public String getTitle() { return title; }
+        public String getVersion() { return version; }
+        public int getOperationCount() { return operationCount; }
+        public Map<String, Integer> getTags() { return tags; }
+    }
+}
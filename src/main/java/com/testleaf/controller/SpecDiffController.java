@@ -0,0 +1,144 @@
+package com.testleaf.controller;
+
+import com.testleaf.llm.ChunkedTestGenerator;
+import com.testleaf.llm.LLMPromptTooLargeException;
+import com.testleaf.llm.LLMProviderException;
+import com.testleaf.llm.LLMTestGenerator;
+import com.testleaf.llm.TestCodeGenerator;
+import com.testleaf.parser.ApiOperation;
+import com.testleaf.parser.ParsedSpec;
+import com.testleaf.parser.ParsedSpecCache;
+import com.testleaf.parser.SpecDiff;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Compares two uploaded versions of a spec and regenerates tests only for the
+ * operations that were added or changed between them.
+ */
+@RestController
+@RequestMapping("/api/specs")
+@CrossOrigin(origins = "http://localhost:3000")
+public class SpecDiffController {
+
+    private final ParsedSpecCache parsedSpecCache;
+    private final LLMTestGenerator llmTestGenerator;
+    private final TestCodeGenerator testCodeGenerator;
+    private final ChunkedTestGenerator chunkedTestGenerator;
+    private final ThreadPoolTaskExecutor requestExecutor;
+
+    public SpecDiffController(ParsedSpecCache parsedSpecCache,
+                              LLMTestGenerator llmTestGenerator,
+                              TestCodeGenerator testCodeGenerator,
+                              ChunkedTestGenerator chunkedTestGenerator,
+                              @Qualifier("requestExecutor") ThreadPoolTaskExecutor requestExecutor) {
+        this.parsedSpecCache = parsedSpecCache;
+        this.llmTestGenerator = llmTestGenerator;
+        this.testCodeGenerator = testCodeGenerator;
+        this.chunkedTestGenerator = chunkedTestGenerator;
+        this.requestExecutor = requestExecutor;
+    }
+
+    /**
+     * Per-operation structural diff between two uploaded specs.
+     *
+     * Example usage:
+     *  GET /api/specs/diff?base={oldSpecId}&amp;target={newSpecId}
+     */
+    @GetMapping("/diff")
+    public ResponseEntity<?> diff(@RequestParam String base, @RequestParam String target) {
+        ParsedSpec baseSpec = parsedSpecCache.find(base);
+        if (baseSpec == null) {
+            return SpecCatalogController.specNotFound(base);
+        }
+        ParsedSpec targetSpec = parsedSpecCache.find(target);
+        if (targetSpec == null) {
+            return SpecCatalogController.specNotFound(target);
+        }
+        return ResponseEntity.ok(SpecDiff.compare(baseSpec, targetSpec));
+    }
+
+    /**
+     * Generates Rest-Assured tests for the added and changed operations only.
+     * Responds with 204 when nothing relevant changed. A delta too large for one prompt is
+     * generated in chunks and returned as a list of classes, as by /api/generateTests.
+     *
+     * Example usage:
+     *  POST /api/specs/diff/generateTests
+     *  Body (raw JSON):
+     *  {
+     *    "baseSpecId": "...",
+     *    "targetSpecId": "...",
+     *    "testTypes": ["positive", "negative"]
+     *  }
+     */
+    @PostMapping("/diff/generateTests")
+    public CompletableFuture<ResponseEntity<?>> generateTestsForDelta(@RequestBody DiffGenerationRequest request) {
+        return AsyncRequests.supply(requestExecutor, () -> {
+            try {
+                ParsedSpec baseSpec = parsedSpecCache.find(request.getBaseSpecId());
+                if (baseSpec == null) {
+                    return SpecCatalogController.specNotFound(request.getBaseSpecId());
+                }
+                ParsedSpec targetSpec = parsedSpecCache.find(request.getTargetSpecId());
+                if (targetSpec == null) {
+                    return SpecCatalogController.specNotFound(request.getTargetSpecId());
+                }
+
+                SpecDiff diff = SpecDiff.compare(baseSpec, targetSpec);
+                List<ApiOperation> delta = targetSpec.getCatalog().findAll(diff.delta());
+                if (delta.isEmpty()) {
+                    return ResponseEntity.noContent().build();
+                }
+                if (chunkedTestGenerator.needsChunking(targetSpec, delta, request.getTestTypes())) {
+                    return ResponseEntity.ok(chunkedTestGenerator.generate(targetSpec, delta, request.getTestTypes()));
+                }
+
+                String llmResponse = llmTestGenerator.generateTestCases(
+                        targetSpec.promptDetails(delta),
+                        request.getTestTypes()
+                );
+                return ResponseEntity.ok(testCodeGenerator.extractJavaCode(llmResponse));
+            } catch (LLMPromptTooLargeException e) {
+                return AsyncRequests.promptTooLarge(e);
+            } catch (LLMProviderException e) {
+                return AsyncRequests.providerFailed(e);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return ResponseEntity.status(500).body("Error generating test code: " + e.getMessage());
+            }
+        });
+    }
+
+    public static class DiffGenerationRequest {
+        private String baseSpecId;
+        private String targetSpecId;
+        private List<String> testTypes;
+
+        public String getBaseSpecId() {
+            return baseSpecId;
+        }
+        public void setBaseSpecId(String baseSpecId) {
+            this.baseSpecId = baseSpecId;
+        }
+
+        public String getTargetSpecId() {
+            return targetSpecId;
+        }
+        public void setTargetSpecId(String targetSpecId) {
+            this.targetSpecId = targetSpecId;
+        }
+
+        public List<String> getTestTypes() {
+            return testTypes;
+        }
+        public void setTestTypes(List<String> testTypes) {
+            this.testTypes = testTypes;
+        }
+    }
+}
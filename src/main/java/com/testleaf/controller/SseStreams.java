@@ -0,0 +1,123 @@
+package com.testleaf.controller;
+
+import com.testleaf.llm.CodeFenceExtractor;
+import com.testleaf.llm.LLMPromptTooLargeException;
+import com.testleaf.llm.LLMProviderException;
+import com.testleaf.llm.LLMUnavailableException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Relays a streamed LLM call to the browser as server-sent events:
+ * "token" events ({"text": ...}) while the completion arrives, then a closing "code" event
+ * ({"code": ...}) with the extracted code, or an "error" event ({"message": ..., "status": ...})
+ * carrying the HTTP status the request would have failed with outside a stream.
+ */
+final class SseStreams {
+
+    private SseStreams() {
+    }
+
+    /**
+     * Runs the call on the given executor and returns the emitter to hand back to Spring MVC.
+     * The "code" event goes out as soon as the extractor has seen the closing fence, and the
+     * stream ends there; the call itself still runs to the end (so the response is cached).
+     * The call reports failure by throwing (see LLMProviderException); the code is taken from
+     * the streamed text, not from what the call returns, so invalid input is to be rejected
+     * before the stream starts (see error).
+     *
+     * @param call      invokes the LLM service with a token callback, returns the full response
+     * @param extractor finds the code in the streamed completion
+     * @param finish    post-processes the extracted code (e.g. adds missing imports)
+     */
+    static SseEmitter stream(Executor executor, Function<Consumer<String>, String> call,
+                             CodeFenceExtractor extractor, Function<String, String> finish) {
+        SseEmitter emitter = new SseEmitter(0L);
+        try {
+            executor.execute(() -> relay(emitter, call, extractor, finish));
+        } catch (RejectedExecutionException e) {
+            return error(HttpStatus.SERVICE_UNAVAILABLE, "Server is busy with other generations. Please retry shortly.");
+        }
+        return emitter;
+    }
+
+    private static void relay(SseEmitter emitter, Function<Consumer<String>, String> call,
+                              CodeFenceExtractor extractor, Function<String, String> finish) {
+        try {
+            // Sending fails once the browser goes away; the upstream call still runs to the end
+            call.apply(text -> {
+                if (extractor.isDone()) {
+                    return;
+                }
+                send(emitter, "token", Map.of("text", text));
+                if (extractor.feed(text)) {
+                    send(emitter, "code", Map.of("code", finish.apply(extractor.result())));
+                    emitter.complete();
+                }
+            });
+            if (extractor.isDone()) {
+                return;
+            }
+            send(emitter, "code", Map.of("code", finish.apply(extractor.result())));
+            emitter.complete();
+        } catch (Exception e) {
+            if (extractor.isDone()) {
+                return; // the code was delivered; the rest of the completion did not matter
+            }
+            // e.g. the provider kept rate limiting; tell the browser if it is still there
+            try {
+                send(emitter, "error", Map.of("message", String.valueOf(e.getMessage()),
+                        "status", status(e).value()));
+                emitter.complete();
+            } catch (Exception sendFailed) {
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    /**
+     * An already finished stream carrying just an "error" event, for requests rejected up front.
+     */
+    static SseEmitter error(HttpStatus status, String message) {
+        SseEmitter emitter = new SseEmitter(0L);
+        try {
+            send(emitter, "error", Map.of("message", message, "status", status.value()));
+            emitter.complete();
+        } catch (Exception e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    // The statuses AsyncRequests answers with for the same failures
+    private static HttpStatus status(Exception e) {
+        if (e instanceof LLMPromptTooLargeException) {
+            return HttpStatus.PAYLOAD_TOO_LARGE;
+        }
+        if (e instanceof LLMUnavailableException) {
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        }
+        if (e instanceof LLMProviderException) {
+            return HttpStatus.BAD_GATEWAY;
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    // JSON data keeps newlines in the text from breaking the event framing
+    private static void send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,52 +1,208 @@
 package com.testleaf.controller;
 
-import java.io.File;
-import java.nio.file.Files;
-import java.nio.file.Paths;
-import java.util.UUID;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
-import com.testleaf.parser.SwaggerParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.testleaf.parser.ParsedSpec;
+import com.testleaf.parser.SpecService;
+import com.testleaf.parser.SpecUploadStore;
+import com.testleaf.parser.SpecUploadStore.SpecUpload;
 
 @RestController
 @RequestMapping("/api")
-@CrossOrigin(origins = "http://localhost:3000") 
+@CrossOrigin(origins = "http://localhost:3000", exposedHeaders = SwaggerParseController.SPEC_ID_HEADER)
 public class SwaggerParseController {
 
-    private final SwaggerParser swaggerParser = new SwaggerParser();
+    // Lets the UI browse the parsed catalog via /api/specs/{specId}
+    public static final String SPEC_ID_HEADER = "X-Spec-Id";
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private final SpecService specService;
+    private final SpecUploadStore specUploadStore;
+    private final ThreadPoolTaskExecutor specParseExecutor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Specs read but not yet parsed, across all bulk requests: bounds the heap they hold
+    private final Semaphore parseSlots;
+
+    public SwaggerParseController(SpecService specService,
+                                  SpecUploadStore specUploadStore,
+                                  @Qualifier("specParseExecutor") ThreadPoolTaskExecutor specParseExecutor) {
+        this.specService = specService;
+        this.specUploadStore = specUploadStore;
+        this.specParseExecutor = specParseExecutor;
+        this.parseSlots = new Semaphore(specParseExecutor.getMaxPoolSize() * 2);
+    }
 
     /**
      * Endpoint to accept a Swagger (YAML/JSON) file and parse it.
+     * Identical uploads are served from the parsed spec cache.
      */
     @PostMapping(value = "/parseSwagger", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> parseSwaggerFile(@RequestParam("file") MultipartFile file) {
-        try {
-            // 1. Save the uploaded file temporarily
-            String tempFileName = System.getProperty("java.io.tmpdir") 
-                                  + File.separator 
-                                  + UUID.randomUUID() + "_" + file.getOriginalFilename();
-            
-            Files.write(Paths.get(tempFileName), file.getBytes());
+        // 1. Open the upload in memory (large uploads are memory-mapped from the spill area)
+        try (SpecUpload upload = specUploadStore.open(file)) {
 
-            // 2. Parse using your existing SwaggerParser
-            String apiDetails = swaggerParser.parseSwagger(tempFileName);
+            // 2. Parse directly from the uploaded bytes (or serve it from the cache)
+            ParsedSpec parsed = specService.ingest(upload.content());
 
             // 3. Check if parse was successful
-            if (apiDetails == null || apiDetails.isEmpty()) {
+            if (parsed == null || parsed.getCatalog().size() == 0) {
                 return ResponseEntity.badRequest()
                                      .body("Failed to parse the Swagger file. Check if it is a valid specification.");
             }
-            
+
             // 4. Return the extracted API details
-            return ResponseEntity.ok(apiDetails);
+            return ResponseEntity.ok().header(SPEC_ID_HEADER, parsed.getSpecId()).body(parsed.getApiDetails());
 
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body("Error parsing file: " + e.getMessage());
         }
     }
+
+    /**
+     * Parses many specs at once (multiple files and/or zip archives) in parallel on the
+     * spec parse pool. Streams one JSON line per spec as soon as it is parsed, then a
+     * closing summary line with the overall wall-clock time.
+     *
+     * Example usage:
+     *  curl -F files=@billing.yaml -F files=@services.zip /api/parseSwagger/bulk
+     */
+    @PostMapping(value = "/parseSwagger/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE, produces = NDJSON)
+    public ResponseEntity<ResponseBodyEmitter> parseSwaggerBulk(@RequestParam("files") List<MultipartFile> files) {
+        long start = System.nanoTime();
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(0L);
+
+        // Read on the request thread (multipart parts may be cleaned up once it returns), but
+        // parse each spec as soon as it is read; at most parseSlots read specs wait for a parser
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        for (MultipartFile file : files) {
+            try {
+                specUploadStore.openEach(file, upload -> tasks.add(submit(upload, emitter, succeeded, failed)));
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                emit(emitter, BulkParseResult.failure(file.getOriginalFilename(), 0, e.getMessage()));
+            }
+        }
+
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).whenComplete((ignored, error) -> {
+            long wallClockMillis = (System.nanoTime() - start) / 1_000_000;
+            emit(emitter, new BulkParseSummary(succeeded.get() + failed.get(), succeeded.get(), failed.get(),
+                    wallClockMillis));
+            emitter.complete();
+        });
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(emitter);
+    }
+
+    // Parses the upload on the spec parse pool and closes it; blocks while all slots are taken
+    private CompletableFuture<Void> submit(SpecUpload upload, ResponseBodyEmitter emitter,
+                                           AtomicInteger succeeded, AtomicInteger failed) {
+        parseSlots.acquireUninterruptibly();
+        try {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    BulkParseResult result = parse(upload);
+                    (result.getError() == null ? succeeded : failed).incrementAndGet();
+                    emit(emitter, result);
+                } finally {
+                    parseSlots.release();
+                }
+            }, specParseExecutor);
+        } catch (RejectedExecutionException e) {
+            parseSlots.release();
+            upload.close();
+            failed.incrementAndGet();
+            emit(emitter, BulkParseResult.failure(upload.name(), 0, "Spec parsing is shutting down"));
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private BulkParseResult parse(SpecUpload upload) {
+        long start = System.nanoTime();
+        try (upload) {
+            ParsedSpec parsed = specService.ingest(upload.content());
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            if (parsed == null || parsed.getCatalog().size() == 0) {
+                return BulkParseResult.failure(upload.name(), millis, "Not a valid Swagger/OpenAPI specification");
+            }
+            return new BulkParseResult(upload.name(), parsed.getSpecId(), parsed.getCatalog().getTitle(),
+                    parsed.getCatalog().size(), millis, null);
+        } catch (Exception e) {
+            return BulkParseResult.failure(upload.name(), (System.nanoTime() - start) / 1_000_000, e.getMessage());
+        }
+    }
+
+    // One NDJSON line per event; serialized up front so concurrent sends never interleave
+    private void emit(ResponseBodyEmitter emitter, Object event) {
+        try {
+            emitter.send(objectMapper.writeValueAsString(event) + "\n");
+        } catch (Exception e) {
+            // Client went away; remaining specs still parse into the cache
+        }
+    }
+
+    public static class BulkParseResult {
+        private final String name;
+        private final String specId;
+        private final String title;
+        private final int operations;
+        private final long parseMillis;
+        private final String error;
+
+        public BulkParseResult(String name, String specId, String title, int operations, long parseMillis, String error) {
+            this.name = name;
+            this.specId = specId;
+            this.title = title;
+            this.operations = operations;
+            this.parseMillis = parseMillis;
+            this.error = error;
+        }
+
+        static BulkParseResult failure(String name, long parseMillis, String error) {
+            return new BulkParseResult(name, null, null, 0, parseMillis, error);
+        }
+
+        public String getName() { return name; }
+        public String getSpecId() { return specId; }
+        public String getTitle() { return title; }
+        public int getOperations() { return operations; }
+        public long getParseMillis() { return parseMillis; }
+        public String getError() { return error; }
+    }
+
+    public static class BulkParseSummary {
+        private final int specs;
+        private final int succeeded;
+        private final int failed;
+        private final long wallClockMillis;
+
+        public BulkParseSummary(int specs, int succeeded, int failed, long wallClockMillis) {
+            this.specs = specs;
+            this.succeeded = succeeded;
+            this.failed = failed;
+            this.wallClockMillis = wallClockMillis;
+        }
+
+        public String getType() { return "summary"; }
+        public int getSpecs() { return specs; }
+        public int getSucceeded() { return succeeded; }
+        public int getFailed() { return failed; }
+        public long getWallClockMillis() { return wallClockMillis; }
+    }
 }
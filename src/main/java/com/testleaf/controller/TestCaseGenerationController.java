@@ -1,20 +1,29 @@
 package com.testleaf.controller;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.testleaf.llm.CodeFenceExtractor;
+import com.testleaf.llm.LLMPromptTooLargeException;
+import com.testleaf.llm.LLMProviderException;
 import com.testleaf.llm.LLMTestCaseGenerator;
-import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "http://localhost:3000")
-@RequiredArgsConstructor
 public class TestCaseGenerationController {
 
     private final LLMTestCaseGenerator llmTestCaseGenerator;
+    private final ThreadPoolTaskExecutor requestExecutor;
+
+    public TestCaseGenerationController(LLMTestCaseGenerator llmTestCaseGenerator,
+                                        @Qualifier("requestExecutor") ThreadPoolTaskExecutor requestExecutor) {
+        this.llmTestCaseGenerator = llmTestCaseGenerator;
+        this.requestExecutor = requestExecutor;
+    }
 
     /**
      * Generates manual test cases from the provided details.
@@ -35,53 +44,37 @@ public class TestCaseGenerationController {
      * }
      */
     @PostMapping("/generateTestCases")
-    public ResponseEntity<String> generateTestCases(@RequestBody TestCaseDetailsRequest request) {
-        try {
-            // Convert TestType to a comma-separated string
-            String testTypeString = convertTestTypeToString(request.getTestType());
-
-            // Generate manual test cases using the LLM
-            String llmResponse = llmTestCaseGenerator.llmGenerateTestCases(
-                    testTypeString,
-                    request.getUserStoryDescription(),
-                    request.getApplicationUrl(),
-                    request.getAcceptanceCriteria(),
-                    request.getEpicDescription(),
-                    request.getAdditionalInstructions()
-            );
-
-            // Return the manual test cases as plain text
-            return ResponseEntity.ok(extractTestCases(llmResponse));
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(500).body("Error generating test cases: " + e.getMessage());
-        }
+    public CompletableFuture<ResponseEntity<?>> generateTestCases(@RequestBody TestCaseDetailsRequest request) {
+        return AsyncRequests.supply(requestExecutor, () -> {
+            try {
+                // Convert TestType to a comma-separated string
+                String testTypeString = convertTestTypeToString(request.getTestType());
+
+                // Generate manual test cases using the LLM
+                String llmResponse = llmTestCaseGenerator.llmGenerateTestCases(
+                        testTypeString,
+                        request.getUserStoryDescription(),
+                        request.getApplicationUrl(),
+                        request.getAcceptanceCriteria(),
+                        request.getEpicDescription(),
+                        request.getAdditionalInstructions()
+                );
+
+                // Return the manual test cases as plain text
+                return ResponseEntity.ok(extractTestCases(llmResponse));
+            } catch (LLMPromptTooLargeException e) {
+                return AsyncRequests.promptTooLarge(e);
+            } catch (LLMProviderException e) {
+                return AsyncRequests.providerFailed(e);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return ResponseEntity.status(500).body("Error generating test cases: " + e.getMessage());
+            }
+        });
     }
 
     public String extractTestCases(String llmResponse) {
-        String content = null;
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(llmResponse);
-            JsonNode choicesNode = rootNode.path("choices");
-            if (choicesNode.isArray() && choicesNode.size() > 0) {
-                JsonNode messageNode = choicesNode.get(0).path("message");
-                content = messageNode.path("content").asText().trim();
-                if (content.contains("```json")) {
-                    int start = content.indexOf("```json");
-                    int end = content.lastIndexOf("```");
-                    if (start != -1 && end != -1 && end > start) {
-                        content = content.substring(start + "```json".length(), end).trim();
-                    }
-                } else if (content.contains("package")) {
-                    int index = content.indexOf("package");
-                    content = content.substring(index).trim();
-                }
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return content;
+        return CodeFenceExtractor.json().extractCompletion(llmResponse);
     }
 
     // DTO to capture the test case details from the UI
@@ -1,22 +1,48 @@
 package com.testleaf.controller;
 
+import com.testleaf.llm.ChunkedTestGenerator;
+import com.testleaf.llm.CodeFenceExtractor;
+import com.testleaf.llm.LLMPromptTooLargeException;
+import com.testleaf.llm.LLMProviderException;
 import com.testleaf.llm.LLMTestGenerator;
 import com.testleaf.llm.TestCodeGenerator;
-import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.testleaf.parser.ApiOperation;
+import com.testleaf.parser.OperationCatalog;
+import com.testleaf.parser.ParsedSpec;
+import com.testleaf.parser.ParsedSpecCache;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "http://localhost:3000")
-@RequiredArgsConstructor
 public class TestGenerationController {
 
     private final LLMTestGenerator llmTestGenerator;
     private final TestCodeGenerator testCodeGenerator;
+    private final ParsedSpecCache parsedSpecCache;
+    private final ChunkedTestGenerator chunkedTestGenerator;
+    private final ThreadPoolTaskExecutor requestExecutor;
+
+    public TestGenerationController(LLMTestGenerator llmTestGenerator,
+                                    TestCodeGenerator testCodeGenerator,
+                                    ParsedSpecCache parsedSpecCache,
+                                    ChunkedTestGenerator chunkedTestGenerator,
+                                    @Qualifier("requestExecutor") ThreadPoolTaskExecutor requestExecutor) {
+        this.llmTestGenerator = llmTestGenerator;
+        this.testCodeGenerator = testCodeGenerator;
+        this.parsedSpecCache = parsedSpecCache;
+        this.chunkedTestGenerator = chunkedTestGenerator;
+        this.requestExecutor = requestExecutor;
+    }
 
     /**
      * Generates Rest-Assured test code from the provided API details and test types.
@@ -28,31 +54,127 @@ public class TestGenerationController {
      *    "apiDetails": "Path: /pet, Method: PUT, Summary: Update an existing pet\nPath: ...",
      *    "testTypes": ["positive", "negative"]
      *  }
+     *
+     *  Instead of apiDetails, a subset of an uploaded spec can be selected:
+     *  {
+     *    "specId": "<X-Spec-Id from /api/parseSwagger>",
+     *    "operations": ["GET /pet/{petId}", "addPet"],
+     *    "testTypes": ["positive"]
+     *  }
+     *
+     *  When the selection is larger than one prompt's token budget it is generated in chunks
+     *  (one class per tag or resource) and the response is the JSON list of classes, as from
+     *  /api/generateTests/classes: one source file each, to be run separately via /api/runTests.
      */
     @PostMapping("/generateTests")
-    public ResponseEntity<String> generateTests(@RequestBody ApiDetailsRequest request) {
-        try {
-            // Generate code using the LLM, passing both apiDetails and testTypes
-            String llmResponse = llmTestGenerator.generateTestCases(
-                    request.getApiDetails(),
-                    request.getTestTypes()
-            );
-
-            // Extract final Java code
-            String finalCode = testCodeGenerator.extractJavaCode(llmResponse);
-
-            // Return the code as plain text
-            return ResponseEntity.ok(finalCode);
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(500).body("Error generating test code: " + e.getMessage());
+    public CompletableFuture<ResponseEntity<?>> generateTests(@RequestBody ApiDetailsRequest request) {
+        return AsyncRequests.supply(requestExecutor, () -> {
+            try {
+                String apiDetails = request.getApiDetails();
+                if (request.getSpecId() != null && !request.getSpecId().isBlank()) {
+                    ParsedSpec spec = parsedSpecCache.find(request.getSpecId());
+                    if (spec == null) {
+                        return SpecCatalogController.specNotFound(request.getSpecId());
+                    }
+                    List<ApiOperation> operations = selectOperations(spec, request.getOperations());
+                    if (chunkedTestGenerator.needsChunking(spec, operations, request.getTestTypes())) {
+                        return ResponseEntity.ok(chunkedTestGenerator.generate(spec, operations, request.getTestTypes()));
+                    }
+                    apiDetails = spec.promptDetails(operations);
+                }
+
+                // Generate code using the LLM, passing both apiDetails and testTypes
+                String llmResponse = llmTestGenerator.generateTestCases(
+                        apiDetails,
+                        request.getTestTypes()
+                );
+
+                // Extract final Java code
+                String finalCode = testCodeGenerator.extractJavaCode(llmResponse);
+
+                // Return the code as plain text
+                return ResponseEntity.ok(finalCode);
+            } catch (LLMPromptTooLargeException e) {
+                return AsyncRequests.promptTooLarge(e);
+            } catch (LLMProviderException e) {
+                return AsyncRequests.providerFailed(e);
+            } catch (Exception e) {
+                e.printStackTrace();
+                return ResponseEntity.status(500).body("Error generating test code: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Streaming variant of /api/generateTests (same request body). Relays the completion over
+     * SSE as it is generated ("token" events), then sends the extracted Java code in a closing
+     * "code" event. A spec selection is sent as one prompt; for very large selections use
+     * /api/generateTests/classes instead.
+     */
+    @PostMapping(value = "/generateTests/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter generateTestsStream(@RequestBody ApiDetailsRequest request) {
+        String apiDetails = request.getApiDetails();
+        if (request.getSpecId() != null && !request.getSpecId().isBlank()) {
+            ParsedSpec spec = parsedSpecCache.find(request.getSpecId());
+            if (spec == null) {
+                return SseStreams.error(HttpStatus.NOT_FOUND,
+                        "Spec " + request.getSpecId() + " not found. Upload it again via /api/parseSwagger.");
+            }
+            apiDetails = spec.promptDetails(selectOperations(spec, request.getOperations()));
         }
+        if (apiDetails == null || apiDetails.isEmpty()) {
+            return SseStreams.error(HttpStatus.BAD_REQUEST, "No valid API details to generate test cases.");
+        }
+        String details = apiDetails;
+        return SseStreams.stream(requestExecutor,
+                onToken -> llmTestGenerator.generateTestCases(details, request.getTestTypes(), null, onToken),
+                CodeFenceExtractor.java(), testCodeGenerator::convertToJavaCode);
+    }
+
+    /**
+     * Generates tests for an uploaded spec as separate classes, one per tag or resource
+     * (split further when over the token budget). The chunks are generated concurrently.
+     *
+     * Example usage:
+     *  POST /api/generateTests/classes
+     *  Body (raw JSON):
+     *  {
+     *    "specId": "<X-Spec-Id from /api/parseSwagger>",
+     *    "testTypes": ["positive", "negative"]
+     *  }
+     */
+    @PostMapping("/generateTests/classes")
+    public CompletableFuture<ResponseEntity<?>> generateTestClasses(@RequestBody ApiDetailsRequest request) {
+        return AsyncRequests.supply(requestExecutor, () -> {
+            try {
+                ParsedSpec spec = parsedSpecCache.find(request.getSpecId());
+                if (spec == null) {
+                    return SpecCatalogController.specNotFound(request.getSpecId());
+                }
+                List<ApiOperation> operations = selectOperations(spec, request.getOperations());
+                return ResponseEntity.ok(chunkedTestGenerator.generate(spec, operations, request.getTestTypes()));
+            } catch (Exception e) {
+                e.printStackTrace();
+                return ResponseEntity.status(500).body("Error generating test code: " + e.getMessage());
+            }
+        });
+    }
+
+    // Selected operations (keys or operationIds) of the catalog, or the whole spec if none are given
+    static List<ApiOperation> selectOperations(ParsedSpec spec, List<String> operations) {
+        OperationCatalog catalog = spec.getCatalog();
+        if (operations == null || operations.isEmpty()) {
+            return catalog.getOperations();
+        }
+        return catalog.findAll(operations);
     }
 
     // Updated DTO with field "testTypes" (plural) to match the React payload.
     public static class ApiDetailsRequest {
         private String apiDetails;
         private List<String> testTypes;  // Updated field name
+        private String specId;
+        private List<String> operations;
 
         public String getApiDetails() {
             return apiDetails;
@@ -67,5 +189,19 @@ public class TestGenerationController {
         public void setTestTypes(List<String> testTypes) {
             this.testTypes = testTypes;
         }
+
+        public String getSpecId() {
+            return specId;
+        }
+        public void setSpecId(String specId) {
+            this.specId = specId;
+        }
+
+        public List<String> getOperations() {
+            return operations;
+        }
+        public void setOperations(List<String> operations) {
+            this.operations = operations;
+        }
     }
 }
@@ -1,39 +1,50 @@
 package com.testleaf.controller;
 
 import com.testleaf.runner.TestExecutor;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "http://localhost:3000") 
-@RequiredArgsConstructor
 public class TestRunController {
 
     private final TestExecutor testExecutor;
+    private final ThreadPoolTaskExecutor testRunExecutor;
+
+    public TestRunController(TestExecutor testExecutor,
+                             @Qualifier("testRunExecutor") ThreadPoolTaskExecutor testRunExecutor) {
+        this.testExecutor = testExecutor;
+        this.testRunExecutor = testRunExecutor;
+    }
 
     @PostMapping("/runTests")
-    public ResponseEntity<?> runTests(@RequestBody TestRunRequest request) {
-        try {
-            // If you already know the class name, pass it directly
-            // Otherwise, parse it from the "public class XYZ" in the code
-            String className = extractClassName(request.getJavaCode());
-            if (className == null) {
-                return ResponseEntity.badRequest()
-                        .body("Could not find class name in the code.");
-            }
+    public CompletableFuture<ResponseEntity<?>> runTests(@RequestBody TestRunRequest request) {
+        return AsyncRequests.supply(testRunExecutor, () -> {
+            try {
+                // If you already know the class name, pass it directly
+                // Otherwise, parse it from the "public class XYZ" in the code
+                String className = extractClassName(request.getJavaCode());
+                if (className == null) {
+                    return ResponseEntity.badRequest()
+                            .body("Could not find class name in the code.");
+                }
 
-            // Call the executor service
-            var result = testExecutor.runTests(request.getJavaCode(), className);
+                // Call the executor service
+                var result = testExecutor.runTests(request.getJavaCode(), className);
 
-            // Return the results as JSON
-            return ResponseEntity.ok(result);
+                // Return the results as JSON
+                return ResponseEntity.ok(result);
 
-        } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.status(500).body("Error running tests: " + e.getMessage());
-        }
+            } catch (Exception e) {
+                e.printStackTrace();
+                return ResponseEntity.status(500).body("Error running tests: " + e.getMessage());
+            }
+        });
     }
 
     private String extractClassName(String javaCode) {
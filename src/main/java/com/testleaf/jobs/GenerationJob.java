@@ -0,0 +1,110 @@
+package com.testleaf.jobs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * State of one batch generation job: the job's chunks (one test class each) and how far
+ * they got. Serialized as the job's job.json, and returned as is by the job API.
+ */
+public class GenerationJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    public enum ChunkStatus {
+        PENDING, RUNNING, DONE, FAILED, CANCELLED
+    }
+
+    private String id;
+    private String specId;
+    private String title;
+    private List<String> testTypes;
+    private long createdAt;
+    private long finishedAt;
+    private Status status = Status.QUEUED;
+    // Why the job as a whole FAILED (failed chunks carry their own error)
+    private String error;
+    // Set by a cancel; the job turns CANCELLED once its running chunks have returned
+    private boolean cancelRequested;
+    private List<ChunkState> chunks = new ArrayList<>();
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getSpecId() { return specId; }
+    public void setSpecId(String specId) { this.specId = specId; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public List<String> getTestTypes() { return testTypes; }
+    public void setTestTypes(List<String> testTypes) { this.testTypes = testTypes; }
+
+    public long getCreatedAt() { return createdAt; }
+    public void setCreatedAt(long createdAt) { this.createdAt = createdAt; }
+
+    public long getFinishedAt() { return finishedAt; }
+    public void setFinishedAt(long finishedAt) { this.finishedAt = finishedAt; }
+
+    public synchronized Status getStatus() { return status; }
+    public synchronized void setStatus(Status status) { this.status = status; }
+
+    public synchronized String getError() { return error; }
+    public synchronized void setError(String error) { this.error = error; }
+
+    public synchronized boolean isCancelRequested() { return cancelRequested; }
+    public synchronized void setCancelRequested(boolean cancelRequested) { this.cancelRequested = cancelRequested; }
+
+    public List<ChunkState> getChunks() { return chunks; }
+    public void setChunks(List<ChunkState> chunks) { this.chunks = chunks; }
+
+    public synchronized boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.CANCELLED || status == Status.FAILED;
+    }
+
+    // Progress counters, by operation
+
+    public synchronized int getTotalOperations() {
+        return chunks.stream().mapToInt(c -> c.getOperations().size()).sum();
+    }
+
+    public synchronized int getCompletedOperations() {
+        return count(ChunkStatus.DONE);
+    }
+
+    public synchronized int getFailedOperations() {
+        return count(ChunkStatus.FAILED);
+    }
+
+    private int count(ChunkStatus chunkStatus) {
+        return chunks.stream().filter(c -> c.getStatus() == chunkStatus).mapToInt(c -> c.getOperations().size()).sum();
+    }
+
+    /**
+     * One chunk of the job: the operations that go into one generated test class.
+     */
+    public static class ChunkState {
+        private String className;
+        private List<String> operations;
+        private ChunkStatus status = ChunkStatus.PENDING;
+        private long millis;
+        private String error;
+
+        public String getClassName() { return className; }
+        public void setClassName(String className) { this.className = className; }
+
+        public List<String> getOperations() { return operations; }
+        public void setOperations(List<String> operations) { this.operations = operations; }
+
+        public ChunkStatus getStatus() { return status; }
+        public void setStatus(ChunkStatus status) { this.status = status; }
+
+        public long getMillis() { return millis; }
+        public void setMillis(long millis) { this.millis = millis; }
+
+        public String getError() { return error; }
+        public void setError(String error) { this.error = error; }
+    }
+}
@@ -0,0 +1,419 @@
+package com.testleaf.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.testleaf.jobs.GenerationJob.ChunkState;
+import com.testleaf.jobs.GenerationJob.ChunkStatus;
+import com.testleaf.jobs.GenerationJob.Status;
+import com.testleaf.llm.ChunkedTestGenerator;
+import com.testleaf.llm.ChunkedTestGenerator.Chunk;
+import com.testleaf.parser.ApiOperation;
+import com.testleaf.parser.ParsedSpec;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Runs batch test generation jobs in the background. A job is planned into chunks up front
+ * (one test class each, see ChunkedTestGenerator), then its chunks are generated on the
+ * llmExecutor with at most jobs.parallel-chunks of them in flight per job. A job that cannot
+ * go on (e.g. the llmExecutor rejects a chunk) ends FAILED once its running chunks return.
+ *
+ * Everything a job needs is kept under jobs.dir/{jobId}: the plan with the prompt details
+ * (plan.json), its progress (job.json) and every finished class as a .java file, written as
+ * soon as it completes. Jobs that were still running when the server stopped are resumed on
+ * startup without the original spec, skipping the classes already on disk. Finished jobs
+ * are removed, directory and all, once they are older than jobs.retention.
+ */
+@Service
+public class GenerationJobService {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final ChunkedTestGenerator chunkedTestGenerator;
+    private final ThreadPoolTaskExecutor jobExecutor;
+    private final ThreadPoolTaskExecutor llmExecutor;
+
+    @Value("${jobs.dir:${user.home}/.swagger-ra-web/jobs}")
+    private String jobsDir;
+
+    @Value("${jobs.parallel-chunks:4}")
+    private int parallelChunks;
+
+    @Value("${jobs.retention:7d}")
+    private Duration retention;
+
+    private Path jobsPath;
+    private final Map<String, GenerationJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> details = new ConcurrentHashMap<>();
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    public GenerationJobService(ChunkedTestGenerator chunkedTestGenerator,
+                                @Qualifier("jobExecutor") ThreadPoolTaskExecutor jobExecutor,
+                                @Qualifier("llmExecutor") ThreadPoolTaskExecutor llmExecutor) {
+        this.chunkedTestGenerator = chunkedTestGenerator;
+        this.jobExecutor = jobExecutor;
+        this.llmExecutor = llmExecutor;
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        jobsPath = Paths.get(jobsDir);
+        Files.createDirectories(jobsPath);
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(jobsPath, Files::isDirectory)) {
+            for (Path dir : dirs) {
+                try {
+                    GenerationJob job = MAPPER.readValue(dir.resolve("job.json").toFile(), GenerationJob.class);
+                    if (isExpired(job)) {
+                        FileSystemUtils.deleteRecursively(dir);
+                        continue;
+                    }
+                    List<String> plan = MAPPER.readValue(dir.resolve("plan.json").toFile(), new TypeReference<>() {});
+                    jobs.put(job.getId(), job);
+                    details.put(job.getId(), plan);
+                    if (!job.isFinished()) {
+                        System.out.println("🔁 Resuming generation job " + job.getId());
+                        start(job);
+                    }
+                } catch (IOException e) {
+                    System.err.println("⚠️ Skipping unreadable job in " + dir + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Plans and persists a job for the operations, then starts it in the background.
+     *
+     * @throws RejectedExecutionException when jobs.queue-capacity jobs are already waiting
+     */
+    public GenerationJob submit(ParsedSpec spec, List<ApiOperation> operations, List<String> testTypes) throws IOException {
+        removeExpired();
+        List<Chunk> chunks = chunkedTestGenerator.plan(spec, operations, testTypes);
+
+        GenerationJob job = new GenerationJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setSpecId(spec.getSpecId());
+        job.setTitle(spec.getCatalog().getTitle());
+        job.setTestTypes(testTypes);
+        job.setCreatedAt(System.currentTimeMillis());
+        List<String> plan = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            ChunkState state = new ChunkState();
+            state.setClassName(chunk.getClassName());
+            state.setOperations(chunk.getOperations().stream().map(ApiOperation::getKey).toList());
+            job.getChunks().add(state);
+            plan.add(chunk.getDetails());
+        }
+
+        Path dir = jobsPath.resolve(job.getId());
+        Files.createDirectories(dir);
+        writeAtomically(dir.resolve("plan.json"), MAPPER.writeValueAsBytes(plan));
+        save(job);
+        jobs.put(job.getId(), job);
+        details.put(job.getId(), plan);
+        try {
+            jobExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            // Never started: forget the job rather than keep it as a failure nobody asked about
+            jobs.remove(job.getId());
+            details.remove(job.getId());
+            FileSystemUtils.deleteRecursively(dir);
+            throw e;
+        }
+        return job;
+    }
+
+    public GenerationJob get(String jobId) {
+        return jobs.get(jobId);
+    }
+
+    /**
+     * All known jobs, newest first.
+     */
+    public List<GenerationJob> list() {
+        List<GenerationJob> all = new ArrayList<>(jobs.values());
+        all.sort(Comparator.comparingLong(GenerationJob::getCreatedAt).reversed());
+        return all;
+    }
+
+    /**
+     * Stops a job: chunks not yet started are skipped; chunks already waiting on the LLM
+     * finish and are kept. Returns false if the job is unknown, finished or already being
+     * cancelled.
+     */
+    public boolean cancel(String jobId) {
+        GenerationJob job = jobs.get(jobId);
+        if (job == null) {
+            return false;
+        }
+        synchronized (job) {
+            if (job.isFinished() || job.isCancelRequested()) {
+                return false;
+            }
+            job.setCancelRequested(true);
+        }
+        saveQuietly(job);
+        return true;
+    }
+
+    /**
+     * Progress events for the job: "progress" after every chunk, then "done". A finished
+     * job gets its "done" event straight away.
+     */
+    public SseEmitter subscribe(GenerationJob job) {
+        SseEmitter emitter = new SseEmitter(0L);
+        List<SseEmitter> list = subscribers.computeIfAbsent(job.getId(), id -> new CopyOnWriteArrayList<>());
+        list.add(emitter);
+        emitter.onCompletion(() -> list.remove(emitter));
+        emitter.onTimeout(() -> list.remove(emitter));
+        // Also when the job finished after the add: send leaves "done" to one of the two
+        if (job.isFinished()) {
+            send(list, emitter, "done", snapshot(job));
+        }
+        return emitter;
+    }
+
+    /**
+     * Writes all generated classes (automation/tests/*.java) to a zip archive.
+     */
+    public void writeArchive(GenerationJob job, OutputStream out) throws IOException {
+        Path dir = jobsPath.resolve(job.getId());
+        ZipOutputStream zip = new ZipOutputStream(out);
+        for (ChunkState chunk : job.getChunks()) {
+            Path source = dir.resolve(chunk.getClassName() + ".java");
+            if (chunk.getStatus() == ChunkStatus.DONE && Files.exists(source)) {
+                zip.putNextEntry(new ZipEntry("automation/tests/" + chunk.getClassName() + ".java"));
+                Files.copy(source, zip);
+                zip.closeEntry();
+            }
+        }
+        zip.putNextEntry(new ZipEntry("job.json"));
+        zip.write(MAPPER.writerWithDefaultPrettyPrinter().writeValueAsBytes(job));
+        zip.closeEntry();
+        zip.finish();
+    }
+
+    // Resumes a job; when the job executor is full the job is marked FAILED
+    private void start(GenerationJob job) {
+        try {
+            jobExecutor.execute(() -> run(job));
+        } catch (RejectedExecutionException e) {
+            finish(job, "Too many generation jobs were queued (jobs.queue-capacity) to resume it.");
+        }
+    }
+
+    private void run(GenerationJob job) {
+        synchronized (job) {
+            if (job.isFinished()) {
+                return;
+            }
+            job.setStatus(Status.RUNNING);
+        }
+        String error = null;
+        try {
+            saveQuietly(job);
+            publish(job, "progress");
+            generateChunks(job);
+        } catch (RejectedExecutionException e) {
+            error = "The LLM executor is full (llm.queue-capacity); the remaining classes were not generated.";
+        } catch (RuntimeException e) {
+            // Whatever went wrong, the job must end up finished or its subscribers wait forever
+            e.printStackTrace();
+            error = String.valueOf(e.getMessage());
+        }
+        finish(job, error);
+    }
+
+    private void generateChunks(GenerationJob job) {
+        Semaphore slots = new Semaphore(parallelChunks);
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        List<String> plan = details.get(job.getId());
+        try {
+            for (int i = 0; i < job.getChunks().size(); i++) {
+                ChunkState chunk = job.getChunks().get(i);
+                if (chunk.getStatus() == ChunkStatus.DONE) {
+                    continue;
+                }
+                try {
+                    slots.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                if (job.isCancelRequested()) {
+                    slots.release();
+                    break;
+                }
+                String prompt = plan.get(i);
+                try {
+                    running.add(CompletableFuture.runAsync(() -> generate(job, chunk, prompt), llmExecutor)
+                            .whenComplete((ignored, error) -> slots.release()));
+                } catch (RejectedExecutionException e) {
+                    slots.release();
+                    throw e;
+                }
+            }
+        } finally {
+            // Chunks already handed to the LLM are kept, also when the job fails
+            CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0])).join();
+        }
+    }
+
+    // Ends the job: COMPLETED, CANCELLED, or FAILED with the error; chunks never started are
+    // marked accordingly
+    private void finish(GenerationJob job, String error) {
+        synchronized (job) {
+            for (ChunkState chunk : job.getChunks()) {
+                if (chunk.getStatus() == ChunkStatus.PENDING) {
+                    chunk.setStatus(error != null ? ChunkStatus.FAILED : ChunkStatus.CANCELLED);
+                    chunk.setError(error);
+                }
+            }
+            if (error != null) {
+                job.setStatus(Status.FAILED);
+                job.setError(error);
+            } else {
+                job.setStatus(job.isCancelRequested() ? Status.CANCELLED : Status.COMPLETED);
+            }
+            job.setFinishedAt(System.currentTimeMillis());
+        }
+        saveQuietly(job);
+        publish(job, "done");
+    }
+
+    private void generate(GenerationJob job, ChunkState chunk, String prompt) {
+        synchronized (job) {
+            chunk.setStatus(ChunkStatus.RUNNING);
+        }
+        long start = System.nanoTime();
+        try {
+            String code = chunkedTestGenerator.generateClass(chunk.getClassName(), prompt, job.getTestTypes());
+            // The class goes to disk before the job records it as done
+            writeAtomically(jobsPath.resolve(job.getId()).resolve(chunk.getClassName() + ".java"),
+                    code.getBytes(StandardCharsets.UTF_8));
+            synchronized (job) {
+                chunk.setStatus(ChunkStatus.DONE);
+                chunk.setError(null);
+            }
+        } catch (Exception e) {
+            synchronized (job) {
+                chunk.setStatus(ChunkStatus.FAILED);
+                chunk.setError(e.getMessage());
+            }
+        }
+        synchronized (job) {
+            chunk.setMillis((System.nanoTime() - start) / 1_000_000);
+        }
+        saveQuietly(job);
+        publish(job, "progress");
+    }
+
+    private void publish(GenerationJob job, String event) {
+        List<SseEmitter> list = subscribers.get(job.getId());
+        if (list == null) {
+            return;
+        }
+        String data = snapshot(job);
+        for (SseEmitter emitter : list) {
+            send(list, emitter, event, data);
+        }
+    }
+
+    // Sent outside the job's lock, so a slow client never holds up the chunk workers. "done"
+    // goes out once per emitter: only the caller that takes the emitter off the list sends it
+    private static void send(List<SseEmitter> list, SseEmitter emitter, String event, String data) {
+        boolean done = "done".equals(event);
+        if (done && !list.remove(emitter)) {
+            return;
+        }
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+            if (done) {
+                emitter.complete();
+            }
+        } catch (Exception e) {
+            list.remove(emitter);
+        }
+    }
+
+    // The job as JSON, taken under its lock
+    private static String snapshot(GenerationJob job) {
+        synchronized (job) {
+            try {
+                return MAPPER.writeValueAsString(job);
+            } catch (JsonProcessingException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private boolean isExpired(GenerationJob job) {
+        return job.isFinished() && job.getFinishedAt() < System.currentTimeMillis() - retention.toMillis();
+    }
+
+    private void removeExpired() {
+        for (GenerationJob job : jobs.values()) {
+            if (isExpired(job)) {
+                jobs.remove(job.getId());
+                details.remove(job.getId());
+                subscribers.remove(job.getId());
+                FileSystemUtils.deleteRecursively(jobsPath.resolve(job.getId()).toFile());
+            }
+        }
+    }
+
+    private void save(GenerationJob job) throws IOException {
+        byte[] json;
+        synchronized (job) {
+            json = MAPPER.writeValueAsBytes(job);
+        }
+        writeAtomically(jobsPath.resolve(job.getId()).resolve("job.json"), json);
+    }
+
+    private void saveQuietly(GenerationJob job) {
+        try {
+            save(job);
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not save job " + job.getId() + ": " + e.getMessage());
+        }
+    }
+
+    // Write to a temp file and move it into place, so a crash never leaves a half-written file
+    private static synchronized void writeAtomically(Path target, byte[] content) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, content);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
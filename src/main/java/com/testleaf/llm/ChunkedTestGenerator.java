@@ -0,0 +1,271 @@
+package com.testleaf.llm;
+
+import com.testleaf.llm.LLMRequestContext.Priority;
+import com.testleaf.parser.ApiOperation;
+import com.testleaf.parser.OperationCatalog;
+import com.testleaf.parser.ParsedSpec;
+import com.testleaf.parser.SchemaResolver;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Generates tests for large selections of a spec. Operations are grouped by tag (or first
+ * path segment), groups over the token budget are split, and every chunk is sent to the LLM
+ * concurrently on the llmExecutor. Each chunk becomes one test class, so wall-clock time
+ * follows the largest chunk rather than the size of the spec.
+ */
+@Service
+public class ChunkedTestGenerator {
+
+    private static final Pattern PUBLIC_CLASS = Pattern.compile("public\\s+class\\s+(\\w+)");
+
+    private final LLMTestGenerator llmTestGenerator;
+    private final TestCodeGenerator testCodeGenerator;
+    private final LLMPromptBuilder promptBuilder;
+    private final ThreadPoolTaskExecutor llmExecutor;
+
+    @Value("${llm.generation.chunk-token-budget:6000}")
+    private int chunkTokenBudget;
+
+    public ChunkedTestGenerator(LLMTestGenerator llmTestGenerator,
+                                TestCodeGenerator testCodeGenerator,
+                                LLMPromptBuilder promptBuilder,
+                                @Qualifier("llmExecutor") ThreadPoolTaskExecutor llmExecutor) {
+        this.llmTestGenerator = llmTestGenerator;
+        this.testCodeGenerator = testCodeGenerator;
+        this.promptBuilder = promptBuilder;
+        this.llmExecutor = llmExecutor;
+    }
+
+    /**
+     * True when the prompt for these operations is too big for a single call, or the tests
+     * for them would not fit the output limit.
+     */
+    public boolean needsChunking(ParsedSpec spec, List<ApiOperation> operations, List<String> testTypes) {
+        return operations.size() > maxOperations(testTypes)
+                || LLMPromptBuilder.estimateTokens(spec.promptDetails(operations)) > chunkTokenBudget;
+    }
+
+    /**
+     * Generates one test class per chunk, in parallel. A failed chunk is reported in its
+     * GeneratedClass instead of failing the whole run, as is one the llmExecutor had no room
+     * for (the chunks already submitted still finish and are returned).
+     */
+    public List<GeneratedClass> generate(ParsedSpec spec, List<ApiOperation> operations, List<String> testTypes) {
+        List<Chunk> chunks = plan(spec, operations, testTypes);
+        List<CompletableFuture<GeneratedClass>> tasks = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            try {
+                tasks.add(CompletableFuture.supplyAsync(() -> generate(chunk, testTypes), llmExecutor));
+            } catch (RejectedExecutionException e) {
+                tasks.add(CompletableFuture.completedFuture(new GeneratedClass(chunk, null, 0,
+                        "The LLM executor is full (llm.queue-capacity); this class was not generated.")));
+            }
+        }
+        List<GeneratedClass> classes = new ArrayList<>();
+        for (CompletableFuture<GeneratedClass> task : tasks) {
+            classes.add(task.join());
+        }
+        return classes;
+    }
+
+    /**
+     * Splits the operations into chunks within the configured token budget and the output
+     * limit for these test types, one class each.
+     */
+    public List<Chunk> plan(ParsedSpec spec, List<ApiOperation> operations, List<String> testTypes) {
+        return chunk(spec, operations, chunkTokenBudget, maxOperations(testTypes));
+    }
+
+    private int maxOperations(List<String> testTypes) {
+        return promptBuilder.maxOperationsPerPrompt(LLMTestGenerator.testTypeCount(testTypes));
+    }
+
+    private GeneratedClass generate(Chunk chunk, List<String> testTypes) {
+        long start = System.nanoTime();
+        try {
+            String code = generateClass(chunk.getClassName(), chunk.getDetails(), testTypes);
+            return new GeneratedClass(chunk, code, (System.nanoTime() - start) / 1_000_000, null);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return new GeneratedClass(chunk, null, (System.nanoTime() - start) / 1_000_000, e.getMessage());
+        }
+    }
+
+    /**
+     * Generates the test class for one chunk's prompt details, on the calling thread and at
+     * bulk priority (a single interactive generation should not queue behind a whole spec).
+     */
+    public String generateClass(String className, String details, List<String> testTypes) {
+        String llmResponse = LLMRequestContext.withPriority(Priority.BULK,
+                () -> llmTestGenerator.generateTestCases(details, testTypes, className));
+        return withClassName(testCodeGenerator.extractJavaCode(llmResponse), className);
+    }
+
+    /**
+     * Groups operations by their first tag (or first path segment when untagged), in document
+     * order, and splits any group whose prompt would exceed the token budget or that has more
+     * than maxOperations operations.
+     */
+    static List<Chunk> chunk(ParsedSpec spec, List<ApiOperation> operations, int tokenBudget, int maxOperations) {
+        Map<String, List<ApiOperation>> groups = new LinkedHashMap<>();
+        for (ApiOperation op : operations) {
+            groups.computeIfAbsent(groupName(op), g -> new ArrayList<>()).add(op);
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        Set<String> classNames = new HashSet<>();
+        for (Map.Entry<String, List<ApiOperation>> group : groups.entrySet()) {
+            List<List<ApiOperation>> parts = split(spec, group.getValue(), tokenBudget, maxOperations);
+            String baseName = className(group.getKey());
+            for (int i = 0; i < parts.size(); i++) {
+                String name = parts.size() == 1 ? baseName : baseName + "Part" + (i + 1);
+                while (!classNames.add(name)) {
+                    name = name + "X";
+                }
+                chunks.add(new Chunk(name, parts.get(i), spec.promptDetails(parts.get(i))));
+            }
+        }
+        return chunks;
+    }
+
+    // Greedy split in document order. Schema signatures are counted once per chunk (as they are
+    // in the prompt), up to the resolver's per-prompt cap. A single operation over the budget
+    // still gets its own chunk.
+    private static List<List<ApiOperation>> split(ParsedSpec spec, List<ApiOperation> group, int tokenBudget,
+                                                  int maxOperations) {
+        SchemaResolver resolver = spec.getSchemaResolver();
+        List<List<ApiOperation>> parts = new ArrayList<>();
+        List<ApiOperation> current = new ArrayList<>();
+        Set<String> currentSchemas = new HashSet<>();
+        int currentTokens = 0;
+        for (ApiOperation op : group) {
+            Set<String> schemas = resolver.referencedSchemas(op.getSchemaRefs());
+            int tokens = cost(op, schemas, currentSchemas, resolver);
+            if (!current.isEmpty() && (currentTokens + tokens > tokenBudget || current.size() == maxOperations)) {
+                parts.add(current);
+                current = new ArrayList<>();
+                currentSchemas = new HashSet<>();
+                currentTokens = 0;
+                tokens = cost(op, schemas, currentSchemas, resolver);
+            }
+            current.add(op);
+            for (String name : schemas) {
+                if (currentSchemas.size() == SchemaResolver.MAX_PROMPT_SCHEMAS) {
+                    break;
+                }
+                currentSchemas.add(name);
+            }
+            currentTokens += tokens;
+        }
+        if (!current.isEmpty()) {
+            parts.add(current);
+        }
+        return parts;
+    }
+
+    private static int cost(ApiOperation op, Set<String> schemas, Set<String> chunkSchemas, SchemaResolver resolver) {
+        int tokens = LLMPromptBuilder.estimateTokens(OperationCatalog.toApiDetails(List.of(op)));
+        int listed = chunkSchemas.size();
+        for (String name : schemas) {
+            if (listed == SchemaResolver.MAX_PROMPT_SCHEMAS) {
+                break;
+            }
+            if (!chunkSchemas.contains(name)) {
+                tokens += LLMPromptBuilder.estimateTokens(resolver.signature(name)) + 1;
+                listed++;
+            }
+        }
+        return tokens;
+    }
+
+    private static String groupName(ApiOperation op) {
+        if (!op.getTags().isEmpty() && !op.getTags().get(0).isBlank()) {
+            return op.getTags().get(0);
+        }
+        for (String segment : op.getPath().split("/")) {
+            if (!segment.isEmpty() && !segment.startsWith("{")) {
+                return segment;
+            }
+        }
+        return "root";
+    }
+
+    // "pet store" / "user-accounts" -> "PetStoreApiTests" / "UserAccountsApiTests"
+    private static String className(String group) {
+        StringBuilder sb = new StringBuilder();
+        for (String word : group.split("[^A-Za-z0-9]+")) {
+            if (!word.isEmpty()) {
+                sb.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1));
+            }
+        }
+        if (sb.length() == 0 || !Character.isJavaIdentifierStart(sb.charAt(0))) {
+            sb.insert(0, "Api");
+        }
+        return sb.append("ApiTests").toString();
+    }
+
+    // The LLM usually follows the naming instruction; when it does not, rename the class so
+    // that the chunks never collide
+    private static String withClassName(String code, String className) {
+        Matcher matcher = PUBLIC_CLASS.matcher(code);
+        if (!matcher.find() || matcher.group(1).equals(className)) {
+            return code;
+        }
+        return code.substring(0, matcher.start(1)) + className + code.substring(matcher.end(1));
+    }
+
+    public static class Chunk {
+        private final String className;
+        private final List<ApiOperation> operations;
+        private final String details;
+
+        Chunk(String className, List<ApiOperation> operations, String details) {
+            this.className = className;
+            this.operations = operations;
+            this.details = details;
+        }
+
+        public String getClassName() { return className; }
+        public List<ApiOperation> getOperations() { return operations; }
+        public String getDetails() { return details; }
+    }
+
+    public static class GeneratedClass {
+        private final String className;
+        private final List<String> operations;
+        private final int promptTokens;
+        private final String code;
+        private final long millis;
+        private final String error;
+
+        GeneratedClass(Chunk chunk, String code, long millis, String error) {
+            this.className = chunk.getClassName();
+            this.operations = chunk.getOperations().stream().map(ApiOperation::getKey).toList();
+            this.promptTokens = LLMPromptBuilder.estimateTokens(chunk.getDetails());
+            this.code = code;
+            this.millis = millis;
+            this.error = error;
+        }
+
+        public String getClassName() { return className; }
+        public List<String> getOperations() { return operations; }
+        public int getPromptTokens() { return promptTokens; }
+        public String getCode() { return code; }
+        public long getMillis() { return millis; }
+        public String getError() { return error; }
+    }
+}
@@ -0,0 +1,381 @@
+package com.testleaf.llm;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Pulls the code out of an LLM completion in one forward pass. Reasoning sections
+ * (&lt;think&gt;...&lt;/think&gt;, as emitted by deepseek-r1 and similar models) are skipped, and
+ * the first fenced block in one of the wanted languages is the result. Fences in other
+ * languages are passed over; the first unlabeled one is the result only when no block in a
+ * wanted language follows (it is often a sample request or response body).
+ *
+ * Works on a whole response (extractCompletion for the response JSON, extract for the
+ * message text) or on a stream: feed each piece of text as it arrives; feed returns true
+ * once the closing fence has been seen, after which the rest of the completion does not
+ * matter. When there is no fence, result falls back to the text outside the reasoning
+ * sections.
+ *
+ * Example usage:
+ *  CodeFenceExtractor extractor = CodeFenceExtractor.java();
+ *  for (String delta : deltas) {
+ *      if (extractor.feed(delta)) break;
+ *  }
+ *  String code = extractor.result();
+ */
+public final class CodeFenceExtractor {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String FENCE = "```";
+    private static final int DECODE_BLOCK = 4096;
+    private static final int NO_CHOICES = -1;
+    private static final int NO_CONTENT = -2;
+    private static final String[] REASONING_OPEN = {"<think>", "<thinking>", "<reasoning>"};
+    private static final String[] REASONING_CLOSE = {"</think>", "</thinking>", "</reasoning>"};
+
+    private enum State { TEXT, REASONING, CODE, OTHER_FENCE, DONE }
+
+    private final Set<String> languages;
+    private final boolean packageFallback;
+
+    private final StringBuilder buf = new StringBuilder();
+    // Text outside reasoning sections, for the no-fence fallback
+    private final StringBuilder visible = new StringBuilder();
+    private State state = State.TEXT;
+    private int pos;
+    private int blockStart;
+    private int codeEnd = -1;
+    // The first unlabeled block, -1 until seen (end: until closed)
+    private int unlabeledStart = -1;
+    private int unlabeledEnd = -1;
+    private String closeTag;
+
+    private CodeFenceExtractor(Set<String> languages, boolean packageFallback) {
+        this.languages = languages;
+        this.packageFallback = packageFallback;
+    }
+
+    /**
+     * A ```java block; without one, the text from the first "package" on.
+     */
+    public static CodeFenceExtractor java() {
+        return new CodeFenceExtractor(Set.of("java"), true);
+    }
+
+    public static CodeFenceExtractor typescript() {
+        return new CodeFenceExtractor(Set.of("typescript", "ts"), false);
+    }
+
+    public static CodeFenceExtractor json() {
+        return new CodeFenceExtractor(Set.of("json"), false);
+    }
+
+    /**
+     * Extracts from a whole completion text.
+     */
+    public String extract(String content) {
+        feed(content);
+        return result();
+    }
+
+    /**
+     * Appends the next piece of the completion and scans as far as it can. Returns true once
+     * the wanted block is complete; further input is ignored.
+     */
+    public boolean feed(CharSequence text) {
+        if (state == State.DONE) {
+            return true;
+        }
+        buf.append(text);
+        scan();
+        return state == State.DONE;
+    }
+
+    public boolean isDone() {
+        return state == State.DONE;
+    }
+
+    /**
+     * The wanted block (also when it was cut off before its closing fence), else the first
+     * unlabeled block, or the fallback text when there was neither.
+     */
+    public String result() {
+        if (state == State.DONE) {
+            return buf.substring(blockStart, codeEnd).trim();
+        }
+        if (state == State.CODE) {
+            return buf.substring(blockStart).trim();
+        }
+        if (unlabeledStart >= 0) {
+            return buf.substring(unlabeledStart, unlabeledEnd >= 0 ? unlabeledEnd : buf.length()).trim();
+        }
+        StringBuilder text = new StringBuilder(visible);
+        if (state == State.OTHER_FENCE) {
+            text.append(buf, blockStart, buf.length());
+        } else if (state == State.TEXT) {
+            text.append(buf, pos, buf.length());
+        }
+        String fallback = text.toString();
+        if (fallback.isBlank()) {
+            // Nothing but reasoning (e.g. cut off by max_tokens); better than nothing
+            fallback = buf.toString();
+        }
+        if (packageFallback) {
+            int index = fallback.indexOf("package");
+            if (index >= 0) {
+                return fallback.substring(index).trim();
+            }
+        }
+        return fallback.trim();
+    }
+
+    private void scan() {
+        int length = buf.length();
+        while (pos < length && state != State.DONE) {
+            switch (state) {
+                case TEXT -> {
+                    char c = buf.charAt(pos);
+                    if (c == '<') {
+                        int matched = matchReasoningTag();
+                        if (matched < 0) {
+                            return; // a tag may be arriving; wait for more input
+                        }
+                        if (matched > 0) {
+                            pos += matched;
+                            state = State.REASONING;
+                            continue;
+                        }
+                    } else if (c == '`') {
+                        if (length - pos < FENCE.length()) {
+                            if (FENCE.startsWith(buf.substring(pos))) {
+                                return;
+                            }
+                        } else if (startsWith(pos, FENCE)) {
+                            int newline = indexOf('\n', pos + FENCE.length());
+                            if (newline < 0) {
+                                return; // info string not complete yet
+                            }
+                            String info = buf.substring(pos + FENCE.length(), newline).trim().toLowerCase();
+                            int space = info.indexOf(' ');
+                            if (space > 0) {
+                                info = info.substring(0, space); // e.g. ```java title="Foo.java"
+                            }
+                            visible.append(buf, pos, newline + 1);
+                            blockStart = newline + 1;
+                            pos = newline + 1;
+                            if (info.isEmpty() && unlabeledStart < 0) {
+                                unlabeledStart = blockStart;
+                            }
+                            state = languages.contains(info) ? State.CODE : State.OTHER_FENCE;
+                            continue;
+                        }
+                    }
+                    // Copy up to the next character that may start a tag or a fence
+                    int next = pos + 1;
+                    while (next < length && buf.charAt(next) != '<' && buf.charAt(next) != '`') {
+                        next++;
+                    }
+                    visible.append(buf, pos, next);
+                    pos = next;
+                }
+                case REASONING -> {
+                    int end = buf.indexOf(closeTag, pos);
+                    if (end < 0) {
+                        pos = Math.max(pos, length - closeTag.length() + 1);
+                        return;
+                    }
+                    pos = end + closeTag.length();
+                    state = State.TEXT;
+                }
+                case CODE, OTHER_FENCE -> {
+                    int fence = closingFence();
+                    if (fence < 0) {
+                        return;
+                    }
+                    if (state == State.CODE) {
+                        codeEnd = fence;
+                        state = State.DONE;
+                    } else {
+                        if (blockStart == unlabeledStart) {
+                            unlabeledEnd = fence;
+                        }
+                        visible.append(buf, blockStart, fence + FENCE.length());
+                        pos = fence + FENCE.length();
+                        state = State.TEXT;
+                    }
+                }
+                default -> {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Length of the reasoning tag at pos (and sets closeTag), 0 if there is none, -1 if the
+    // input ends before that can be told
+    private int matchReasoningTag() {
+        int available = buf.length() - pos;
+        for (int t = 0; t < REASONING_OPEN.length; t++) {
+            String tag = REASONING_OPEN[t];
+            if (available >= tag.length()) {
+                if (startsWith(pos, tag)) {
+                    closeTag = REASONING_CLOSE[t];
+                    return tag.length();
+                }
+            } else if (tag.startsWith(buf.substring(pos))) {
+                return -1;
+            }
+        }
+        return 0;
+    }
+
+    // Position of the next ``` that starts a line (after optional indentation), scanning from
+    // pos; -1 (with pos moved past what was checked) when there is none yet
+    private int closingFence() {
+        while (true) {
+            int fence = buf.indexOf(FENCE, pos);
+            if (fence < 0) {
+                pos = Math.max(pos, buf.length() - FENCE.length() + 1);
+                return -1;
+            }
+            int i = fence - 1;
+            while (i >= blockStart && (buf.charAt(i) == ' ' || buf.charAt(i) == '\t')) {
+                i--;
+            }
+            if (i < blockStart || buf.charAt(i) == '\n') {
+                return fence;
+            }
+            pos = fence + FENCE.length();
+        }
+    }
+
+    private boolean startsWith(int from, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (buf.charAt(from + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int indexOf(char c, int from) {
+        for (int i = from; i < buf.length(); i++) {
+            if (buf.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Extracts from a chat completion (the response JSON), reading choices[0].message.content
+     * straight from the JSON text: no tree is built, and decoding stops once the closing
+     * fence has been seen. Returns null when the text is not a completion with choices.
+     */
+    public String extractCompletion(String completion) {
+        int start;
+        try {
+            start = contentOffset(completion);
+        } catch (IOException e) {
+            return null;
+        }
+        if (start == NO_CHOICES) {
+            return null;
+        }
+        if (start == NO_CONTENT) {
+            return "";
+        }
+        // Decode the JSON string, copying the runs between escapes in bulk and scanning
+        // after every DECODE_BLOCK characters
+        int length = completion.length();
+        int i = start + 1;
+        int quote = completion.indexOf('"', i);
+        int backslash = completion.indexOf('\\', i);
+        int scanned = buf.length();
+        while (state != State.DONE) {
+            if (quote < 0) {
+                quote = length; // unterminated; take what is there
+            }
+            if (backslash < 0 || backslash > quote) {
+                buf.append(completion, i, quote);
+                break;
+            }
+            buf.append(completion, i, backslash);
+            i = backslash + 2;
+            char e = backslash + 1 < length ? completion.charAt(backslash + 1) : '\\';
+            switch (e) {
+                case 'n' -> buf.append('\n');
+                case 't' -> buf.append('\t');
+                case 'r' -> buf.append('\r');
+                case 'b' -> buf.append('\b');
+                case 'f' -> buf.append('\f');
+                case 'u' -> {
+                    buf.append((char) Integer.parseInt(completion, i, Math.min(i + 4, length), 16));
+                    i += 4;
+                }
+                default -> buf.append(e); // \" \\ \/
+            }
+            backslash = completion.indexOf('\\', i);
+            if (quote < i) {
+                quote = completion.indexOf('"', i);
+            }
+            if (buf.length() - scanned >= DECODE_BLOCK) {
+                scan();
+                scanned = buf.length();
+            }
+        }
+        scan();
+        return result();
+    }
+
+    // Offset of the opening quote of choices[0].message.content. The streaming parser only
+    // tokenizes up to there and does not decode the string itself.
+    private static int contentOffset(String completion) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(completion)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return NO_CHOICES;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("choices".equals(field) && value == JsonToken.START_ARRAY) {
+                    if (parser.nextToken() != JsonToken.START_OBJECT) {
+                        return NO_CHOICES;
+                    }
+                    return messageContentOffset(parser, completion);
+                }
+                parser.skipChildren();
+            }
+            return NO_CHOICES;
+        }
+    }
+
+    private static int messageContentOffset(JsonParser parser, String completion) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            if ("message".equals(field) && value == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String name = parser.getCurrentName();
+                    JsonToken token = parser.nextToken();
+                    if ("content".equals(name) && token == JsonToken.VALUE_STRING) {
+                        int offset = (int) parser.getTokenLocation().getCharOffset();
+                        if (offset < 0 || completion.charAt(offset) != '"') {
+                            throw new IOException("Unexpected token offset " + offset);
+                        }
+                        return offset;
+                    }
+                    parser.skipChildren();
+                }
+                return NO_CONTENT;
+            }
+            parser.skipChildren();
+        }
+        return NO_CONTENT;
+    }
+}
@@ -0,0 +1,218 @@
+package com.testleaf.llm;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Circuit breaker per LLM endpoint, checked before every request to the provider.
+ *
+ * CLOSED: requests go through; the last llm.circuit.window requests are kept. Once at least
+ * llm.circuit.min-calls are in the window and the failure rate (5xx, 429, connection errors and
+ * timeouts) or the slow-call rate (slower than llm.circuit.slow-call-duration) reaches its
+ * threshold, the circuit opens.
+ * OPEN: requests fail at once with LLMUnavailableException (503 with Retry-After) for
+ * llm.circuit.open-duration, instead of each waiting out a socket timeout.
+ * HALF_OPEN: llm.circuit.half-open-calls trial requests go through; if all of them succeed in
+ * time the circuit closes, any failure opens it again.
+ *
+ * Metrics: llm.circuit.state (0 closed, 1 open, 2 half-open), llm.circuit.transitions (tag to)
+ * and llm.circuit.rejected, all tagged with the endpoint.
+ */
+@Component
+@RequiredArgsConstructor
+public class LLMCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${llm.circuit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${llm.circuit.window:20}")
+    private int window;
+
+    @Value("${llm.circuit.min-calls:10}")
+    private int minCalls;
+
+    @Value("${llm.circuit.failure-rate-threshold:0.5}")
+    private double failureRateThreshold;
+
+    @Value("${llm.circuit.slow-call-duration:60s}")
+    private Duration slowCallDuration;
+
+    @Value("${llm.circuit.slow-call-rate-threshold:0.8}")
+    private double slowCallRateThreshold;
+
+    @Value("${llm.circuit.open-duration:30s}")
+    private Duration openDuration;
+
+    @Value("${llm.circuit.half-open-calls:3}")
+    private int halfOpenCalls;
+
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    /**
+     * Lets a request to the endpoint through, or rejects it while the circuit is open. A
+     * permitted request must end in onSuccess, onFailure or release.
+     *
+     * @throws LLMUnavailableException when the circuit is open
+     */
+    public void acquire(LLMEndpoint endpoint) {
+        if (enabled) {
+            circuit(endpoint).acquire();
+        }
+    }
+
+    /**
+     * The provider answered (any status that says nothing about its health, e.g. 200 or 400).
+     */
+    public void onSuccess(LLMEndpoint endpoint, long nanos) {
+        if (enabled) {
+            circuit(endpoint).record(false, nanos >= slowCallDuration.toNanos());
+        }
+    }
+
+    public void onFailure(LLMEndpoint endpoint, long nanos) {
+        if (enabled) {
+            circuit(endpoint).record(true, nanos >= slowCallDuration.toNanos());
+        }
+    }
+
+    /**
+     * A permitted request ended without telling anything about the provider (cancelled or
+     * interrupted before it was answered, or failed on this side before reaching it).
+     */
+    public void release(LLMEndpoint endpoint) {
+        if (enabled) {
+            circuit(endpoint).release();
+        }
+    }
+
+    public State state(LLMEndpoint endpoint) {
+        return circuit(endpoint).state();
+    }
+
+    private Circuit circuit(LLMEndpoint endpoint) {
+        return circuits.computeIfAbsent(endpoint.getName(), Circuit::new);
+    }
+
+    private final class Circuit {
+
+        private final String endpoint;
+        private final boolean[] failed = new boolean[Math.max(1, window)];
+        private final boolean[] slow = new boolean[failed.length];
+        private int size;
+        private int head;
+        private int failures;
+        private int slowCalls;
+
+        private State state = State.CLOSED;
+        private long openedAt;
+        private int trialsLeft;
+        private int trialsSucceeded;
+
+        Circuit(String endpoint) {
+            this.endpoint = endpoint;
+            Gauge.builder("llm.circuit.state", this, c -> c.state().ordinal())
+                    .tag("endpoint", endpoint)
+                    .register(meterRegistry);
+        }
+
+        synchronized State state() {
+            return state;
+        }
+
+        synchronized void acquire() {
+            if (state == State.OPEN) {
+                long remaining = openDuration.toNanos() - (System.nanoTime() - openedAt);
+                if (remaining > 0) {
+                    reject(Duration.ofNanos(remaining));
+                }
+                transition(State.HALF_OPEN, "trying " + halfOpenCalls + " requests");
+                trialsLeft = halfOpenCalls;
+                trialsSucceeded = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (trialsLeft == 0) {
+                    reject(openDuration);
+                }
+                trialsLeft--;
+            }
+        }
+
+        synchronized void record(boolean failure, boolean slowCall) {
+            switch (state) {
+                case CLOSED -> {
+                    if (size == failed.length) {
+                        failures -= failed[head] ? 1 : 0;
+                        slowCalls -= slow[head] ? 1 : 0;
+                    } else {
+                        size++;
+                    }
+                    failed[head] = failure;
+                    slow[head] = slowCall;
+                    failures += failure ? 1 : 0;
+                    slowCalls += slowCall ? 1 : 0;
+                    head = (head + 1) % failed.length;
+                    if (size >= minCalls) {
+                        double failureRate = (double) failures / size;
+                        double slowRate = (double) slowCalls / size;
+                        if (failureRate >= failureRateThreshold || slowRate >= slowCallRateThreshold) {
+                            open(String.format("%.0f%% failed, %.0f%% slow in the last %d requests",
+                                    failureRate * 100, slowRate * 100, size));
+                        }
+                    }
+                }
+                case HALF_OPEN -> {
+                    if (failure || slowCall) {
+                        open("a trial request " + (failure ? "failed" : "was slow"));
+                    } else if (++trialsSucceeded == halfOpenCalls) {
+                        size = head = failures = slowCalls = 0;
+                        transition(State.CLOSED, "trial requests succeeded");
+                    }
+                }
+                default -> {
+                    // Requests that started before the circuit opened; their outcome is already known
+                }
+            }
+        }
+
+        synchronized void release() {
+            if (state == State.HALF_OPEN && trialsLeft < halfOpenCalls - trialsSucceeded) {
+                trialsLeft++;
+            }
+        }
+
+        private void open(String reason) {
+            openedAt = System.nanoTime();
+            transition(State.OPEN, reason + "; failing fast for " + openDuration.toSeconds() + "s");
+        }
+
+        private void transition(State to, String reason) {
+            if (to == State.OPEN) {
+                System.err.println("🔌 LLM circuit for " + endpoint + " " + state + " -> " + to + ": " + reason);
+            } else {
+                System.out.println("🔌 LLM circuit for " + endpoint + " " + state + " -> " + to + ": " + reason);
+            }
+            state = to;
+            meterRegistry.counter("llm.circuit.transitions", "endpoint", endpoint, "to", to.name().toLowerCase()).increment();
+        }
+
+        private void reject(Duration retryAfter) {
+            meterRegistry.counter("llm.circuit.rejected", "endpoint", endpoint).increment();
+            long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+            throw new LLMUnavailableException("The LLM provider (" + endpoint + ") is failing; requests are paused for "
+                    + seconds + "s. Please retry later.", retryAfter);
+        }
+    }
+}
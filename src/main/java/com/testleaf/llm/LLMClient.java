@@ -0,0 +1,685 @@
+package com.testleaf.llm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpHead;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeaderElementIterator;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * The one HTTP client for all LLM calls. Connections to the provider are pooled and kept
+ * alive between requests, so only the first call on a connection pays the TCP + TLS handshake;
+ * a few connections are opened right after startup so user requests do not pay it at all.
+ *
+ * With llm.hedge.enabled, non-streamed calls that run past the hedge delay are duplicated to
+ * a hedge endpoint; the first answer wins and the other call is aborted (see LLMHedgePolicy).
+ * Every request passes the endpoint's circuit breaker, so a failing provider is not waited on.
+ */
+@Component
+public class LLMClient {
+
+    @Value("${llm.api.url}")
+    private String llmApiUrl;
+
+    @Value("${llm.api.key}")
+    private String apiKey;
+
+    @Value("${llm.http.max-connections:50}")
+    private int maxConnections;
+
+    @Value("${llm.http.max-connections-per-route:20}")
+    private int maxConnectionsPerRoute;
+
+    @Value("${llm.http.connect-timeout:10s}")
+    private Duration connectTimeout;
+
+    // LLM responses take a while; this bounds the wait between bytes, not the whole call
+    @Value("${llm.http.read-timeout:180s}")
+    private Duration readTimeout;
+
+    // How long a call may wait for a free pooled connection
+    @Value("${llm.http.pool-timeout:30s}")
+    private Duration poolTimeout;
+
+    // Used when the provider does not send a Keep-Alive timeout
+    @Value("${llm.http.keep-alive:60s}")
+    private Duration keepAlive;
+
+    @Value("${llm.http.warmup-connections:2}")
+    private int warmupConnections;
+
+    @Value("${llm.retry.max-attempts:4}")
+    private int maxAttempts;
+
+    @Value("${llm.retry.initial-backoff:1s}")
+    private Duration initialBackoff;
+
+    @Value("${llm.retry.max-backoff:30s}")
+    private Duration maxBackoff;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final LLMResponseCache responseCache;
+    private final LLMRateLimiter rateLimiter;
+    private final LLMSingleFlight singleFlight;
+    private final LLMHedgePolicy hedgePolicy;
+    private final LLMMetrics metrics;
+    private final LLMCircuitBreaker circuitBreaker;
+    private final ThreadPoolTaskExecutor hedgeExecutor;
+
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+
+    public LLMClient(LLMResponseCache responseCache,
+                     LLMRateLimiter rateLimiter,
+                     LLMSingleFlight singleFlight,
+                     LLMHedgePolicy hedgePolicy,
+                     LLMMetrics metrics,
+                     LLMCircuitBreaker circuitBreaker,
+                     @Qualifier("llmHedgeExecutor") ThreadPoolTaskExecutor hedgeExecutor) {
+        this.responseCache = responseCache;
+        this.rateLimiter = rateLimiter;
+        this.singleFlight = singleFlight;
+        this.hedgePolicy = hedgePolicy;
+        this.metrics = metrics;
+        this.circuitBreaker = circuitBreaker;
+        this.hedgeExecutor = hedgeExecutor;
+    }
+
+    @PostConstruct
+    void init() {
+        connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+        // Re-check connections that sat idle, since the provider may have closed them
+        connectionManager.setValidateAfterInactivity(2000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) connectTimeout.toMillis())
+                .setSocketTimeout((int) readTimeout.toMillis())
+                .setConnectionRequestTimeout((int) poolTimeout.toMillis())
+                .build();
+
+        httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy(keepAliveStrategy())
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive.toMillis(), TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * For the generation services: posts the payload, or streams it when onDelta is given.
+     * I/O failures are thrown as LLMProviderException, like the provider's own errors.
+     *
+     * @param service the calling service, for the llm.* metrics
+     */
+    public String call(String service, String requestBody, Consumer<String> onDelta) {
+        try {
+            return onDelta == null ? post(service, requestBody) : stream(service, requestBody, onDelta);
+        } catch (IOException e) {
+            // Not returned as text: the services hand their result on as the generated code
+            throw new LLMProviderException(0, "Error calling LLM API: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Posts a chat-completions payload and returns the raw response body. Successful
+     * responses are cached; an identical request is answered from the cache.
+     *
+     * @param service the calling service, for the llm.* metrics
+     * @throws LLMProviderException when the provider still fails after the retries
+     */
+    public String post(String service, String requestBody) throws IOException {
+        long start = System.nanoTime();
+        String cacheKey = LLMResponseCache.key(requestBody);
+        String cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            metrics.recordCall(service, hedgePolicy.primary(), LLMMetrics.Outcome.CACHED, System.nanoTime() - start);
+            return cached;
+        }
+        try {
+            // An identical request already in flight answers this one too
+            LLMCompletion completion = singleFlight.run(cacheKey, () -> send(service, requestBody, cacheKey), null);
+            metrics.recordCall(service, completion.getEndpoint(), LLMMetrics.Outcome.SUCCESS, System.nanoTime() - start);
+            return completion.getBody();
+        } catch (IOException | RuntimeException e) {
+            metrics.recordCall(service, hedgePolicy.primary(), LLMMetrics.Outcome.ERROR, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private LLMCompletion send(String service, String requestBody, String cacheKey) throws IOException {
+        int estimatedTokens = LLMPromptBuilder.estimateTokens(requestBody);
+        LLMCompletion completion = hedgePolicy.isEnabled()
+                ? sendHedged(service, requestBody, estimatedTokens)
+                : complete(new Attempt(hedgePolicy.primary(), service), requestBody, estimatedTokens);
+        responseCache.put(cacheKey, completion.getBody());
+        return completion;
+    }
+
+    /**
+     * Sends to the primary endpoint and, if it has not answered within the hedge delay, a
+     * duplicate to a hedge endpoint. Returns the first successful answer and aborts the other
+     * call; fails only when both fail (with the primary's error).
+     */
+    private LLMCompletion sendHedged(String service, String requestBody, int estimatedTokens) throws IOException {
+        Attempt primary = start(new Attempt(hedgePolicy.primary(), service), requestBody, estimatedTokens);
+        // The delay counts from when the primary went out, not from time spent in the rate limiter
+        long sentAt = primary.awaitSent();
+        try {
+            long remaining = hedgePolicy.delay().toNanos() - (System.nanoTime() - sentAt);
+            LLMCompletion completion = primary.result.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+            hedgePolicy.recordLatency(System.nanoTime() - sentAt);
+            hedgePolicy.recordOutcome(LLMHedgePolicy.Outcome.NOT_HEDGED);
+            return completion;
+        } catch (TimeoutException e) {
+            // Slower than the hedge delay: send the duplicate below
+        } catch (InterruptedException e) {
+            primary.cancel();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the LLM", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LLMUnavailableException) {
+                // The primary's circuit is open: the hedge endpoint is the only way to an answer
+                return complete(new Attempt(hedgePolicy.nextHedgeEndpoint(), service), requestBody, estimatedTokens);
+            }
+            return await(primary.result);
+        }
+
+        Attempt hedge = start(new Attempt(hedgePolicy.nextHedgeEndpoint(), service), requestBody, estimatedTokens);
+        CompletableFuture<Attempt> first = new CompletableFuture<>();
+        AtomicInteger failed = new AtomicInteger();
+        for (Attempt attempt : List.of(primary, hedge)) {
+            attempt.result.whenComplete((completion, error) -> {
+                if (error == null) {
+                    first.complete(attempt);
+                } else if (failed.incrementAndGet() == 2) {
+                    first.completeExceptionally(error);
+                }
+            });
+        }
+        Attempt winner;
+        try {
+            winner = first.get();
+        } catch (InterruptedException e) {
+            primary.cancel();
+            hedge.cancel();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the LLM", e);
+        } catch (ExecutionException e) {
+            hedgePolicy.recordLatency(System.nanoTime() - sentAt);
+            hedgePolicy.recordOutcome(LLMHedgePolicy.Outcome.FAILED);
+            return await(primary.result);
+        }
+        (winner == primary ? hedge : primary).cancel();
+        hedgePolicy.recordLatency(System.nanoTime() - sentAt);
+        hedgePolicy.recordOutcome(winner == primary ? LLMHedgePolicy.Outcome.PRIMARY_WON : LLMHedgePolicy.Outcome.HEDGE_WON);
+        if (winner == hedge) {
+            System.out.println("🔀 Hedged LLM call answered first by " + hedge.endpoint);
+        }
+        return winner.result.join();
+    }
+
+    // Runs one call on the hedge executor
+    private Attempt start(Attempt attempt, String requestBody, int estimatedTokens) {
+        hedgeExecutor.execute(() -> {
+            attempt.bind(Thread.currentThread());
+            try {
+                attempt.result.complete(complete(attempt, requestBody, estimatedTokens));
+            } catch (Throwable e) {
+                attempt.result.completeExceptionally(e);
+            } finally {
+                attempt.unbind();
+                // A call that failed before it was sent must not leave the caller waiting
+                attempt.sent.complete(System.nanoTime());
+            }
+        });
+        return attempt;
+    }
+
+    // One non-streamed call to the attempt's endpoint, with retries
+    private LLMCompletion complete(Attempt attempt, String requestBody, int estimatedTokens) throws IOException {
+        String payload = attempt.endpoint.payload(requestBody);
+        try (CloseableHttpResponse response = execute(payload, estimatedTokens, false, attempt)) {
+            // Reading the entity to the end releases the connection back to the pool
+            String body;
+            try {
+                body = EntityUtils.toString(response.getEntity());
+            } catch (IOException e) {
+                metrics.recordRequest(attempt.endpoint, attempt.isCancelled() ? "cancelled" : "io_error",
+                        System.nanoTime() - attempt.requestStart);
+                throw e;
+            }
+            metrics.recordRequest(attempt.endpoint, "200", System.nanoTime() - attempt.requestStart);
+            JsonNode root = MAPPER.readTree(body);
+            JsonNode usage = root.path("usage");
+            if (usage.path("total_tokens").isInt()) {
+                rateLimiter.adjust(estimatedTokens, usage.path("total_tokens").asInt());
+                metrics.recordUsage(attempt.service, attempt.endpoint,
+                        usage.path("prompt_tokens").asLong(), usage.path("completion_tokens").asLong());
+            } else {
+                metrics.recordUsage(attempt.service, attempt.endpoint, estimatedTokens,
+                        LLMPromptBuilder.estimateTokens(content(body)));
+            }
+            if ("length".equals(root.path("choices").path(0).path("finish_reason").asText())) {
+                // Thrown before send() caches it
+                throw new LLMTruncatedException(MAPPER.readTree(payload).path("max_tokens").asInt());
+            }
+            return new LLMCompletion(body, attempt.endpoint);
+        }
+    }
+
+    /**
+     * Streams a chat-completions payload ("stream": true) and passes each piece of generated
+     * text to onDelta as it arrives. Returns the assembled completion in the same shape as a
+     * non-streamed response, so callers extract code from it the same way. Streamed and
+     * non-streamed calls share cache entries; a cache hit is delivered as a single delta.
+     * Once onDelta throws, the deltas stop but the call reads on, for the callers joined to it.
+     *
+     * @param service the calling service, for the llm.* metrics
+     * @throws LLMProviderException when the provider still fails after the retries
+     */
+    public String stream(String service, String requestBody, Consumer<String> onDelta) throws IOException {
+        long start = System.nanoTime();
+        String cacheKey = LLMResponseCache.key(requestBody);
+        String cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            onDelta.accept(content(cached));
+            metrics.recordCall(service, hedgePolicy.primary(), LLMMetrics.Outcome.CACHED, System.nanoTime() - start);
+            return cached;
+        }
+        try {
+            // Joining an identical call in flight delivers its completion as a single delta
+            LLMCompletion completion = singleFlight.run(cacheKey,
+                    () -> sendStreaming(service, requestBody, cacheKey, onDelta, start),
+                    joined -> onDelta.accept(content(joined.getBody())));
+            metrics.recordCall(service, completion.getEndpoint(), LLMMetrics.Outcome.SUCCESS, System.nanoTime() - start);
+            return completion.getBody();
+        } catch (IOException | RuntimeException e) {
+            metrics.recordCall(service, hedgePolicy.primary(), LLMMetrics.Outcome.ERROR, System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    private LLMCompletion sendStreaming(String service, String requestBody, String cacheKey, Consumer<String> onDelta,
+                                        long start) throws IOException {
+        ObjectNode payload = (ObjectNode) MAPPER.readTree(requestBody);
+        payload.put("stream", true);
+        int estimatedTokens = LLMPromptBuilder.estimateTokens(requestBody);
+        Attempt attempt = new Attempt(hedgePolicy.primary(), service);
+        try (CloseableHttpResponse response = execute(MAPPER.writeValueAsString(payload), estimatedTokens, true, attempt)) {
+            HttpEntity entity = response.getEntity();
+            StringBuilder content = new StringBuilder();
+            JsonNode usage = null;
+            String finishReason = null;
+            boolean relaying = true;
+            BufferedReader reader = new BufferedReader(new InputStreamReader(entity.getContent(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                String data = line.substring("data:".length()).trim();
+                if ("[DONE]".equals(data)) {
+                    break;
+                }
+                JsonNode chunk = MAPPER.readTree(data);
+                JsonNode delta = chunk.path("choices").path(0).path("delta").path("content");
+                if (delta.isTextual() && !delta.asText().isEmpty()) {
+                    if (content.length() == 0) {
+                        metrics.recordTimeToFirstToken(service, attempt.endpoint, System.nanoTime() - start);
+                    }
+                    content.append(delta.asText());
+                    if (relaying) {
+                        try {
+                            onDelta.accept(delta.asText());
+                        } catch (RuntimeException e) {
+                            // This caller's consumer went away (e.g. the browser disconnected). Identical
+                            // requests may have joined the call, so it reads on and is still cached
+                            relaying = false;
+                        }
+                    }
+                }
+                JsonNode finish = chunk.path("choices").path(0).path("finish_reason");
+                if (finish.isTextual()) {
+                    finishReason = finish.asText();
+                }
+                // Providers that report usage on a stream send it with the last chunk (Groq under x_groq)
+                if (chunk.has("usage") && chunk.get("usage").isObject()) {
+                    usage = chunk.get("usage");
+                } else if (chunk.path("x_groq").has("usage")) {
+                    usage = chunk.path("x_groq").get("usage");
+                }
+            }
+            // Drain whatever follows [DONE] so the connection can go back to the pool
+            EntityUtils.consume(entity);
+            metrics.recordRequest(attempt.endpoint, "200", System.nanoTime() - attempt.requestStart);
+            long completionTokens = usage != null ? usage.path("completion_tokens").asLong()
+                    : LLMPromptBuilder.estimateTokens(content);
+            long promptTokens = usage != null ? usage.path("prompt_tokens").asLong() : estimatedTokens;
+            rateLimiter.adjust(estimatedTokens, (int) (promptTokens + completionTokens));
+            metrics.recordUsage(service, attempt.endpoint, promptTokens, completionTokens);
+
+            if ("length".equals(finishReason)) {
+                throw new LLMTruncatedException(payload.path("max_tokens").asInt());
+            }
+            String body = completion(content.toString());
+            responseCache.put(cacheKey, body);
+            return new LLMCompletion(body, attempt.endpoint);
+        }
+    }
+
+    /**
+     * Sends the request through the rate limiter and returns the first 200 response. 429s,
+     * 5xx and connection failures are retried with exponential backoff and full jitter, or
+     * after the provider's Retry-After, which also pauses the limiter for everyone. Stops as
+     * soon as the attempt is cancelled or the endpoint's circuit opens.
+     */
+    private CloseableHttpResponse execute(String requestBody, int estimatedTokens, boolean streaming, Attempt attempt) throws IOException {
+        for (int tries = 1; ; tries++) {
+            // Fails fast while the endpoint's circuit is open, also between retries
+            circuitBreaker.acquire(attempt.endpoint);
+            try {
+                rateLimiter.acquire(estimatedTokens);
+            } catch (InterruptedException e) {
+                circuitBreaker.release(attempt.endpoint);
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the LLM rate limiter", e);
+            }
+
+            HttpPost request = new HttpPost(attempt.endpoint.getUrl());
+            request.setHeader("Authorization", "Bearer " + attempt.endpoint.getApiKey());
+            if (streaming) {
+                request.setHeader("Accept", "text/event-stream");
+            }
+            request.setEntity(new StringEntity(requestBody, ContentType.APPLICATION_JSON));
+
+            try {
+                attempt.sending(request);
+            } catch (IOException e) {
+                circuitBreaker.release(attempt.endpoint);
+                throw e;
+            }
+            CloseableHttpResponse response;
+            try {
+                response = httpClient.execute(request);
+            } catch (IOException e) {
+                long elapsed = System.nanoTime() - attempt.requestStart;
+                if (attempt.isCancelled()) {
+                    circuitBreaker.release(attempt.endpoint);
+                    metrics.recordRequest(attempt.endpoint, "cancelled", elapsed);
+                    throw new InterruptedIOException("LLM call cancelled");
+                }
+                // Connection failures and read timeouts count against the circuit
+                circuitBreaker.onFailure(attempt.endpoint, elapsed);
+                metrics.recordRequest(attempt.endpoint, "io_error", elapsed);
+                if (tries >= maxAttempts) {
+                    throw new LLMProviderException(0, "LLM API unreachable after " + tries + " attempts: " + e.getMessage(), e);
+                }
+                sleep(backoff(tries));
+                continue;
+            } catch (RuntimeException e) {
+                // e.g. the connection pool was shut down; the permit must not leak, or a
+                // half-open circuit runs out of trial calls for good
+                circuitBreaker.release(attempt.endpoint);
+                throw e;
+            }
+
+            int status = response.getStatusLine().getStatusCode();
+            boolean retryable = status == 429 || status >= 500;
+            if (retryable) {
+                circuitBreaker.onFailure(attempt.endpoint, System.nanoTime() - attempt.requestStart);
+            } else {
+                circuitBreaker.onSuccess(attempt.endpoint, System.nanoTime() - attempt.requestStart);
+            }
+            if (status == 200) {
+                return response;
+            }
+            String error;
+            try (response) {
+                error = EntityUtils.toString(response.getEntity());
+            }
+            metrics.recordRequest(attempt.endpoint, String.valueOf(status), System.nanoTime() - attempt.requestStart);
+            if (!retryable || tries >= maxAttempts) {
+                throw new LLMProviderException(status, "LLM API returned " + response.getStatusLine()
+                        + (retryable ? " after " + tries + " attempts" : "") + ": " + error, null);
+            }
+
+            Duration delay = retryAfter(response);
+            if (delay == null) {
+                delay = backoff(tries);
+            }
+            System.err.println("⚠️ LLM API returned " + status + ", retrying in " + delay.toMillis() + " ms");
+            if (status == 429) {
+                // Everyone waits; the limiter hands out the next permit once the pause is over
+                rateLimiter.pause(delay);
+            } else {
+                sleep(delay);
+            }
+        }
+    }
+
+    // Retry-After as delta-seconds or an HTTP date
+    private static Duration retryAfter(HttpResponse response) {
+        Header header = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+        if (header == null) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Long.parseLong(header.getValue().trim()));
+        } catch (NumberFormatException e) {
+            Date date = DateUtils.parseDate(header.getValue());
+            return date == null ? null : Duration.ofMillis(Math.max(0, date.getTime() - System.currentTimeMillis()));
+        }
+    }
+
+    // Exponential backoff with full jitter: random in [0, min(max, initial * 2^(attempt - 1))]
+    private Duration backoff(int attempt) {
+        long cap = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    private static void sleep(Duration delay) throws IOException {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while backing off", e);
+        }
+    }
+
+    private static LLMCompletion await(CompletableFuture<LLMCompletion> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the LLM", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static String content(String completion) {
+        try {
+            return MAPPER.readTree(completion).path("choices").path(0).path("message").path("content").asText();
+        } catch (JsonProcessingException e) {
+            return completion;
+        }
+    }
+
+    // {"choices":[{"message":{"role":"assistant","content":...}}]}
+    private static String completion(String content) throws IOException {
+        ObjectNode root = MAPPER.createObjectNode();
+        ObjectNode message = root.putArray("choices").addObject().putObject("message");
+        message.put("role", "assistant");
+        message.put("content", content);
+        return MAPPER.writeValueAsString(root);
+    }
+
+    /**
+     * Opens the warm-up connections in the background once the application is up. Failures
+     * only mean the first calls will connect themselves.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        for (int i = 0; i < warmupConnections; i++) {
+            Thread warmup = new Thread(this::openConnection, "llm-warmup-" + i);
+            warmup.setDaemon(true);
+            warmup.start();
+        }
+    }
+
+    private void openConnection() {
+        HttpHead request = new HttpHead(llmApiUrl);
+        request.setHeader("Authorization", "Bearer " + apiKey);
+        try (CloseableHttpResponse response = httpClient.execute(request)) {
+            // Any status will do: the handshake is done and the connection goes back to the pool
+            EntityUtils.consume(response.getEntity());
+        } catch (Exception e) {
+            System.err.println("⚠️ LLM connection warm-up failed: " + e.getMessage());
+        }
+    }
+
+    private ConnectionKeepAliveStrategy keepAliveStrategy() {
+        return (response, context) -> {
+            HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+            while (it.hasNext()) {
+                HeaderElement element = it.nextElement();
+                if ("timeout".equalsIgnoreCase(element.getName()) && element.getValue() != null) {
+                    try {
+                        return Long.parseLong(element.getValue()) * 1000;
+                    } catch (NumberFormatException ignored) {
+                        // fall through to the default
+                    }
+                }
+            }
+            return keepAlive.toMillis();
+        };
+    }
+
+    /**
+     * One call to one endpoint, which can be cancelled from another thread: the request in
+     * progress is aborted and a thread waiting in the rate limiter or a backoff is interrupted.
+     */
+    private static final class Attempt {
+
+        private final LLMEndpoint endpoint;
+        private final String service;
+        // Completed with System.nanoTime() when the first request goes out
+        private final CompletableFuture<Long> sent = new CompletableFuture<>();
+        private final CompletableFuture<LLMCompletion> result = new CompletableFuture<>();
+
+        // System.nanoTime() when the current request went out
+        private volatile long requestStart;
+
+        private HttpPost request;
+        private Thread thread;
+        private boolean cancelled;
+
+        private Attempt(LLMEndpoint endpoint, String service) {
+            this.endpoint = endpoint;
+            this.service = service;
+        }
+
+        synchronized void sending(HttpPost request) throws IOException {
+            if (cancelled) {
+                throw new InterruptedIOException("LLM call cancelled");
+            }
+            this.request = request;
+            requestStart = System.nanoTime();
+            sent.complete(requestStart);
+        }
+
+        long awaitSent() throws IOException {
+            try {
+                return sent.get();
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the LLM", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e); // sent is only ever completed normally
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (request != null) {
+                request.abort();
+            }
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+
+        synchronized void bind(Thread thread) {
+            this.thread = thread;
+        }
+
+        synchronized void unbind() {
+            thread = null;
+            // Clear an interrupt from a cancel that came too late, before the thread goes back to the pool
+            Thread.interrupted();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.testleaf.llm;
+
+/**
+ * A completion body and the endpoint that produced it, which for a hedged call may not be
+ * the primary. Shared with callers that joined the request (see LLMSingleFlight).
+ */
+final class LLMCompletion {
+
+    private final String body;
+    private final LLMEndpoint endpoint;
+
+    LLMCompletion(String body, LLMEndpoint endpoint) {
+        this.body = body;
+        this.endpoint = endpoint;
+    }
+
+    String getBody() { return body; }
+
+    LLMEndpoint getEndpoint() { return endpoint; }
+}
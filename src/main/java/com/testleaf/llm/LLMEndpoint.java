@@ -0,0 +1,53 @@
+package com.testleaf.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+
+/**
+ * One chat-completions endpoint the LLM client can send to: the configured provider
+ * (llm.api.*) or one of the hedge endpoints (llm.hedge.*), optionally with its own model.
+ */
+public final class LLMEndpoint {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String name;
+    private final String url;
+    private final String apiKey;
+    private final String model;
+
+    public LLMEndpoint(String name, String url, String apiKey, String model) {
+        this.name = name;
+        this.url = url;
+        this.apiKey = apiKey;
+        this.model = model == null || model.isBlank() ? null : model.trim();
+    }
+
+    public String getName() { return name; }
+
+    public String getUrl() { return url; }
+
+    public String getApiKey() { return apiKey; }
+
+    public String getModel() { return model; }
+
+    /**
+     * The request body for this endpoint: unchanged, or with "model" replaced when the
+     * endpoint has a model of its own.
+     */
+    public String payload(String requestBody) throws IOException {
+        if (model == null) {
+            return requestBody;
+        }
+        ObjectNode payload = (ObjectNode) MAPPER.readTree(requestBody);
+        payload.put("model", model);
+        return MAPPER.writeValueAsString(payload);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + url + (model != null ? ", " + model : "") + ")";
+    }
+}
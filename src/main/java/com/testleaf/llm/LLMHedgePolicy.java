@@ -0,0 +1,145 @@
+package com.testleaf.llm;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * When to hedge an LLM call and where to send the duplicate. A call to the primary endpoint
+ * that has not answered after the llm.hedge.percentile latency of recent primary calls gets a
+ * duplicate on the next hedge endpoint (round robin); LLMClient takes whichever answers first.
+ *
+ * Until llm.hedge.min-samples calls have been seen the delay is llm.hedge.initial-delay, and
+ * it never drops below llm.hedge.min-delay, so a fast provider is not hedged on every call.
+ *
+ * Metrics: llm.hedge.calls (tag outcome: not_hedged, primary_won, hedge_won, failed) gives the
+ * hedge rate and the hedge win ratio; llm.hedge.delay is the current delay in milliseconds.
+ */
+@Component
+@RequiredArgsConstructor
+public class LLMHedgePolicy {
+
+    public enum Outcome {
+        NOT_HEDGED, PRIMARY_WON, HEDGE_WON, FAILED
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${llm.api.url}")
+    private String llmApiUrl;
+
+    @Value("${llm.api.key}")
+    private String apiKey;
+
+    @Value("${llm.hedge.enabled:false}")
+    private boolean enabled;
+
+    // Comma-separated; keys and models line up with the urls. A missing key means llm.api.key,
+    // a missing model means the model of the request.
+    @Value("${llm.hedge.urls:}")
+    private List<String> urls;
+
+    @Value("${llm.hedge.keys:}")
+    private List<String> keys;
+
+    @Value("${llm.hedge.models:}")
+    private List<String> models;
+
+    @Value("${llm.hedge.percentile:0.95}")
+    private double percentile;
+
+    @Value("${llm.hedge.min-delay:2s}")
+    private Duration minDelay;
+
+    @Value("${llm.hedge.initial-delay:30s}")
+    private Duration initialDelay;
+
+    @Value("${llm.hedge.min-samples:20}")
+    private int minSamples;
+
+    // Number of recent primary latencies the percentile is taken over
+    @Value("${llm.hedge.window:200}")
+    private int window;
+
+    private LLMEndpoint primary;
+    private final List<LLMEndpoint> hedgeEndpoints = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    private long[] latencies;
+    private int count;
+    private int head;
+
+    @PostConstruct
+    void init() {
+        primary = new LLMEndpoint("primary", llmApiUrl, apiKey, null);
+        for (int i = 0; i < urls.size(); i++) {
+            String url = urls.get(i).trim();
+            if (url.isEmpty()) {
+                continue;
+            }
+            String key = i < keys.size() && !keys.get(i).isBlank() ? keys.get(i).trim() : apiKey;
+            String model = i < models.size() ? models.get(i) : null;
+            hedgeEndpoints.add(new LLMEndpoint("hedge-" + (i + 1), url, key, model));
+        }
+        latencies = new long[Math.max(1, window)];
+
+        for (Outcome outcome : Outcome.values()) {
+            meterRegistry.counter("llm.hedge.calls", "outcome", outcome.name().toLowerCase());
+        }
+        Gauge.builder("llm.hedge.delay", this, policy -> policy.delay().toMillis()).register(meterRegistry);
+        if (isEnabled()) {
+            System.out.println("🔀 Hedging LLM calls to " + hedgeEndpoints);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled && !hedgeEndpoints.isEmpty();
+    }
+
+    public LLMEndpoint primary() {
+        return primary;
+    }
+
+    /**
+     * The endpoint for the next hedged duplicate.
+     */
+    public LLMEndpoint nextHedgeEndpoint() {
+        return hedgeEndpoints.get(Math.floorMod(next.getAndIncrement(), hedgeEndpoints.size()));
+    }
+
+    /**
+     * How long the primary gets before a duplicate is sent.
+     */
+    public synchronized Duration delay() {
+        if (count < minSamples) {
+            return initialDelay;
+        }
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.min(count - 1, Math.max(0, Math.ceil(percentile * count) - 1));
+        return Duration.ofNanos(Math.max(minDelay.toNanos(), sorted[index]));
+    }
+
+    /**
+     * Records how long a primary call took. For a primary that lost to its hedge this is the
+     * time until it was cancelled, a lower bound that still keeps the slow calls in the window.
+     */
+    public synchronized void recordLatency(long nanos) {
+        latencies[head] = nanos;
+        head = (head + 1) % latencies.length;
+        count = Math.min(count + 1, latencies.length);
+    }
+
+    public void recordOutcome(Outcome outcome) {
+        meterRegistry.counter("llm.hedge.calls", "outcome", outcome.name().toLowerCase()).increment();
+    }
+}
@@ -0,0 +1,95 @@
+package com.testleaf.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer metering for LLM calls, scraped from /actuator/prometheus:
+ *
+ *  llm.calls                 timer per call as the calling service sees it, including the
+ *                            cache, rate limiter and retries (tags service, outcome, and
+ *                            model: of the endpoint that answered, e.g. a hedge)
+ *  llm.provider.requests     timer per HTTP request to a provider endpoint (tags endpoint,
+ *                            model, status: the HTTP status, io_error or cancelled)
+ *  llm.time.to.first.token   timer for streamed calls (tags service, model)
+ *  llm.tokens                prompt and completion tokens from the response usage, or
+ *                            estimated when a stream reports none (tags service, endpoint,
+ *                            model, type)
+ *  llm.cost                  tokens priced with llm.cost.*-per-million-tokens
+ *
+ * Timers publish histogram buckets, so percentiles can be aggregated across instances.
+ */
+@Component
+@RequiredArgsConstructor
+public class LLMMetrics {
+
+    public enum Outcome {
+        SUCCESS, CACHED, ERROR
+    }
+
+    private static final Duration MIN_EXPECTED = Duration.ofMillis(10);
+    private static final Duration MAX_EXPECTED = Duration.ofMinutes(5);
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${llm.model}")
+    private String model;
+
+    @Value("${llm.cost.input-per-million-tokens:0}")
+    private double inputCost;
+
+    @Value("${llm.cost.output-per-million-tokens:0}")
+    private double outputCost;
+
+    /**
+     * The model a call to the endpoint runs on.
+     */
+    public String model(LLMEndpoint endpoint) {
+        return endpoint.getModel() != null ? endpoint.getModel() : model;
+    }
+
+    public void recordCall(String service, LLMEndpoint endpoint, Outcome outcome, long nanos) {
+        timer("llm.calls", "service", service, "model", model(endpoint), "outcome", outcome.name().toLowerCase())
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordRequest(LLMEndpoint endpoint, String status, long nanos) {
+        timer("llm.provider.requests", "endpoint", endpoint.getName(), "model", model(endpoint), "status", status)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordTimeToFirstToken(String service, LLMEndpoint endpoint, long nanos) {
+        timer("llm.time.to.first.token", "service", service, "model", model(endpoint))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordUsage(String service, LLMEndpoint endpoint, long promptTokens, long completionTokens) {
+        String[] tags = {"service", service, "endpoint", endpoint.getName(), "model", model(endpoint)};
+        tokens(tags, "prompt").increment(promptTokens);
+        tokens(tags, "completion").increment(completionTokens);
+        double cost = (promptTokens * inputCost + completionTokens * outputCost) / 1_000_000;
+        if (cost > 0) {
+            Counter.builder("llm.cost").baseUnit("usd").tags(tags).register(meterRegistry).increment(cost);
+        }
+    }
+
+    private Counter tokens(String[] tags, String type) {
+        return Counter.builder("llm.tokens").baseUnit("tokens").tags(tags).tag("type", type).register(meterRegistry);
+    }
+
+    private Timer timer(String name, String... tags) {
+        return Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,345 @@
+package com.testleaf.llm;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the chat-completions payloads. The static prompt text is compiled once into
+ * templates; a call only fills in its placeholders. Every payload is sized before it is
+ * sent: prompts over llm.prompt.max-input-tokens are rejected, and max_tokens is derived
+ * from the output the request is expected to produce instead of a fixed worst case, plus
+ * llm.output.reasoning-tokens for the reasoning a model like deepseek-r1 writes first.
+ */
+@Component
+public class LLMPromptBuilder {
+
+    // Rough token estimate for English text and code: ~4 characters per token
+    public static final int CHARS_PER_TOKEN = 4;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static final Template TEST_GENERATION_SYSTEM = Template.compile(
+            "You are a helpful assistant that generates Java code for API tests. "
+          + "Your response must contain only Java code enclosed in a single code block using triple backticks (```java ... ```). "
+          + "- Do not include any additional text explanations. "
+          + "- Be a complete and executable Java class. "
+          + "- Use only standard and correct imports (e.g., org.testng.Assert, io.restassured.RestAssured). "
+          + "{testTypes}"
+          + "- Add package as automation.tests "
+          + "{className}"
+          + "- Write comments on the code "
+          + "- Print output of the API response "
+          + "- Generate Java code that is compatible with Java 8 version ONLY "
+          + "- Use BeforeMethod of Testng with hardcoded baseURI "
+          + "- DO NOT add any assertion other than status code "
+          + "- DO NOT use Arrays.stream method in the generated code "
+          + "- The generated code should use only the Java methods belonging to RestAssured and TestNG compatible versions "
+          + "- If you parse JSON (e.g., new ObjectMapper().readTree(...)), handle or declare any exceptions (throws Exception or try/catch).");
+
+    static final Template TEST_GENERATION_USER = Template.compile(
+            "Generate REST API test cases using Rest Assured (Java, TestNG) for the following API specification:\n"
+          + "{apiDetails}");
+
+    static final Template TEST_CASE_SYSTEM = Template.compile("Instruction:\n"
+          + "You are a highly skilled test analyst specializing in manual test case generation. Your task is to create structured manual test cases based on the given inputs, such as:\n\n"
+          + "- Application URL\n"
+          + "- User Story Description\n"
+          + "- Acceptance Criteria\n"
+          + "- Test Types (Positive, Negative, Edge, or All)\n\n"
+          + "Each test case should be well-structured and easy to follow for manual testers.\n\n"
+          + "Guidelines:\n"
+          + "- Write in a step-by-step format using plain English.\n"
+          + "- Do not include any code or automation-related steps.\n"
+          + "- Ensure each test case covers a different scenario (positive, negative, and edge cases).\n"
+          + "- Each test case must have:\n"
+          + "  - A unique Test Case ID (e.g., TC001, TC002)\n"
+          + "  - Clear test case description\n"
+          + "  - Preconditions (if applicable)\n"
+          + "  - Well-defined test steps\n"
+          + "  - Expected and actual results\n"
+          + "  - Status (set as \"Pending\" by default)\n"
+          + "- Ensure completeness by covering all conditions mentioned in the user story and acceptance criteria.\n\n"
+          + "Context:\n"
+          + "You are assisting testers who will execute these test cases manually. Your test cases should be detailed yet concise, ensuring clarity and accuracy.\n\n"
+          + "Persona:\n"
+          + "- You are a meticulous and detail-oriented senior test lead.\n"
+          + "- Your responses should be precise, structured, and well-formatted.\n\n"
+          + "Output Format:\n"
+          + "Your response must be in structured JSON format as shown below:\n\n"
+          + "{\n"
+          + "  \"testCases\": [\n"
+          + "    {\n"
+          + "      \"TC_No\": \"TC001\",\n"
+          + "      \"Test_Case_Description\": \"Verify login with valid credentials\",\n"
+          + "      \"Pre-requisites\": \"User must have valid credentials\",\n"
+          + "      \"Test_Steps\": \"1. Open login page\\n2. Enter valid username\\n3. Enter valid password\\n4. Click on Login\",\n"
+          + "      \"Actual_Result\": \"User is successfully logged in\",\n"
+          + "      \"Expected_Result\": \"User should be logged in successfully\",\n"
+          + "      \"Status\": \"Pending\"\n"
+          + "    },\n"
+          + "    {\n"
+          + "      \"TC_No\": \"TC002\",\n"
+          + "      \"Test_Case_Description\": \"Verify login with invalid credentials\",\n"
+          + "      \"Pre-requisites\": \"User must have an invalid set of credentials\",\n"
+          + "      \"Test_Steps\": \"1. Open login page\\n2. Enter invalid username\\n3. Enter invalid password\\n4. Click on Login\",\n"
+          + "      \"Actual_Result\": \"Error message displayed\",\n"
+          + "      \"Expected_Result\": \"User should receive an error message\",\n"
+          + "      \"Status\": \"Pending\"\n"
+          + "    }\n"
+          + "  ]\n"
+          + "}\n\n"
+          + "Tone:\n"
+          + "- Professional, clear, and structured\n"
+          + "- Concise yet detailed\n"
+          + "- User-friendly for manual testers");
+
+    static final Template TEST_CASE_USER = Template.compile(
+            "Generate test cases for the following user story description:\n"
+          + "{userStory}\n"
+          + "Application URL: {applicationUrl}\n"
+          + "Acceptance Criteria: {acceptanceCriteria}\n"
+          + "Test Type :{testTypes}"
+          + "{epic}"
+          + "{additionalInstructions}");
+
+    static final Template CONVERSION_SYSTEM = Template.compile("Instructions:\n"
+          + "\n"
+          + "- Convert Selenium Java test automation code to Playwright TypeScript while preserving the logic and functionality.\n"
+          + "- Ensure that the converted code follows Playwright's best practices, including:\n"
+          + "    -- Proper async/await usage for handling asynchronous operations.\n"
+          + "    -- Selectors conversion (e.g., By.id() → page.locator() equivalent).\n"
+          + "    -- Handling of waits (Implicit/Explicit waits should be replaced with Playwright’s auto-waiting).\n"
+          + "    -- Assertions should be mapped to Playwright’s test assertions if applicable.\n"
+          + "    -- Maintain proper TypeScript typings (Page, Browser, etc.) and use ES6+ features where appropriate.\n"
+          + "    -- Optimize code structure, removing unnecessary waits or redundant calls.\n"
+          + "    -- Ensure that logging/debugging mechanisms (if present in Selenium) are mapped correctly to Playwright equivalents.\n"
+          + "    -- The output must be idiomatic Playwright TypeScript, not just a direct Java-to-TypeScript translation.\n"
+          + "    -- DO NOT add any additional steps other than given input code.\n"
+          + "    -- Always use page.locator() method followed by actions and DO not call method without locating \n"
+          + "	   -- when using name locator, it should look like await page.locator('[name=\"value\"]')."
+          + "    -- Make sure to waitUntil: 'domcontentloaded' \n"
+          + "    -- DO NOT Use expect and just use console.log \n"
+          + "    -- selectOption is the dropdown selection function in playwright typescript"
+          + "    -- fill is the text box type function in playwright typescript"
+          + "	   --[MANDATORY] ONLY use getByRole('link', { name: 'text' }) for linktext"
+          + "    --[IMPORTANT] Follow Playwright Official Documentation to ensure all functions are correctly\n"
+          + "    --[MANDATORY] Follow the exact output format as in the example"
+          + "    --[CRITICAL] Use Playwright latest version when converting the code\n"
+          + "\n"
+          + "Context:\n"
+          + "\n"
+          + "I am building an AI-based prompt to convert Selenium Java code to Playwright TypeScript automatically.\n"
+          + "The converted code must be production-ready, as accuracy is crucial for my career growth.\n"
+          + "\n"
+          + "Example:\n"
+          + "\n"
+          + "Selenium Java (Input)\n"
+          + "\n"
+          + "java\n"
+          + "import org.openqa.selenium.WebDriver;\n"
+          + "import org.openqa.selenium.chrome.ChromeDriver;\n"
+          + "\n"
+          + "public class PrintTitle {\n"
+          + "  public static void main(String[] args) {\n"
+          + "    WebDriver driver = new ChromeDriver();\n"
+          + "    driver.get(\"http://playwright.dev\");\n"
+          + "    System.out.println(driver.getTitle());\n"
+          + "    driver.quit();\n"
+          + "  }\n"
+          + "}\n"
+          + "\n"
+          + "\n"
+          + "Playwright TypeScript (Expected Output)\n"
+          + "\n"
+          + "typescript\n"
+          + "import { test, expect } from '@playwright/test';\n"
+          + "\n"
+          + "test('has title', async ({ page }) => {\n"
+          + "  await page.goto('https://playwright.dev/');\n"
+          + "\n"
+          + "  // Expect a title \"to contain\" a substring.\n"
+          + "console.log(await page.title());\n"
+          + "});\n"
+          + "\n"
+          + "\n"
+          + "Persona:\n"
+          + "\n"
+          + "You are a Senior Test Automation Architect specializing in Selenium and Playwright migration. \n"
+          + "Your responsibility is to ensure that the converted Playwright TypeScript code is accurate, maintainable, and follows industry best practices.\n"
+          + "\n"
+          + "Output Format:\n"
+          + "\n"
+          + "-   The output should be fully working Playwright TypeScript code.\n"
+          + "-   It should be structured as an executable script or within a test framework if required.\n"
+          + "-   The code should be formatted properly and follow Playwright’s official documentation. \n"
+          + "-   DO NOT Provide anything other than Playwright Code Such as explanations, Key Points.\n"
+          + "-   Make Sure the comments are staying as it is in the code.\n"
+          + "\n"
+          + "Use the above framework to generate the playwright typescript code for the following java code:"
+          + "{seleniumCode}");
+
+    static final String CONVERSION_USER = "Convert the above Selenium code to Playwright TypeScript code.";
+
+    private static final Pattern API_DETAILS_OPERATION = Pattern.compile("(?m)^Path: ");
+
+    @Value("${llm.model}")
+    private String modelName;
+
+    @Value("${llm.prompt.max-input-tokens:24000}")
+    private int maxInputTokens;
+
+    // Class skeleton, imports and setup of a generated test class
+    @Value("${llm.output.base-tokens:600}")
+    private int baseOutputTokens;
+
+    // One test method, per operation and test type
+    @Value("${llm.output.tokens-per-test:400}")
+    private int tokensPerTest;
+
+    @Value("${llm.output.max-tokens:10000}")
+    private int maxOutputTokens;
+
+    @Value("${llm.output.max-test-case-tokens:20000}")
+    private int maxTestCaseTokens;
+
+    // Reasoning models write a <think> section before the answer; it counts against max_tokens
+    @Value("${llm.output.reasoning-tokens:3000}")
+    private int reasoningTokens;
+
+    /**
+     * Payload for Rest-Assured test generation. max_tokens covers one test per operation and
+     * test type; a selection that would need more than llm.output.max-tokens is rejected
+     * rather than cut off mid-class (spec selections are chunked below that, see
+     * maxOperationsPerPrompt).
+     */
+    public String testGeneration(String apiDetails, String testTypeLine, int testTypeCount, String className) {
+        String system = TEST_GENERATION_SYSTEM.render(Map.of(
+                "testTypes", testTypeLine,
+                "className", className != null ? "- Name the test class " + className + " " : ""));
+        String user = TEST_GENERATION_USER.render(Map.of("apiDetails", apiDetails));
+        int expected = baseOutputTokens + tokensPerTest * countOperations(apiDetails) * Math.max(1, testTypeCount);
+        if (expected > maxOutputTokens) {
+            throw new LLMPromptTooLargeException("The generated tests would need about " + expected
+                    + " output tokens, more than the limit of " + maxOutputTokens
+                    + ". Upload the spec and generate it via /api/generateTests/classes or /api/jobs, which split it into classes.");
+        }
+        return payload(system, user, 0.2, expected);
+    }
+
+    /**
+     * Payload for manual test case generation. The output grows with the user story and
+     * acceptance criteria and with the number of test types.
+     */
+    public String testCaseGeneration(Map<String, String> fields, int testTypeCount) {
+        String user = TEST_CASE_USER.render(fields);
+        int expected = baseOutputTokens + 4 * estimateTokens(user) * Math.max(1, testTypeCount);
+        return payload(TEST_CASE_SYSTEM.render(Map.of()), user, 0.2, Math.min(expected, maxTestCaseTokens));
+    }
+
+    /**
+     * Payload for Selenium to Playwright conversion; the output is about the size of the
+     * input code, with headroom for the added async/await and typings.
+     */
+    public String conversion(String seleniumCode) {
+        String system = CONVERSION_SYSTEM.render(Map.of("seleniumCode", seleniumCode));
+        int expected = baseOutputTokens + 3 * estimateTokens(seleniumCode) / 2;
+        if (expected > maxOutputTokens) {
+            throw new LLMPromptTooLargeException("The converted code would need about " + expected
+                    + " output tokens, more than the limit of " + maxOutputTokens + ". Convert the classes one at a time.");
+        }
+        return payload(system, CONVERSION_USER, 0.1, expected);
+    }
+
+    /**
+     * How many operations fit in one generated class without exceeding llm.output.max-tokens.
+     */
+    public int maxOperationsPerPrompt(int testTypeCount) {
+        return Math.max(1, (maxOutputTokens - baseOutputTokens) / (tokensPerTest * Math.max(1, testTypeCount)));
+    }
+
+    public static int estimateTokens(CharSequence text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    // apiDetails lists one "Path: ..." line per operation; free text counts one per line
+    static int countOperations(String apiDetails) {
+        Matcher matcher = API_DETAILS_OPERATION.matcher(apiDetails);
+        int count = 0;
+        while (matcher.find()) {
+            count++;
+        }
+        if (count == 0) {
+            count = (int) apiDetails.lines().filter(line -> !line.isBlank()).count();
+        }
+        return Math.max(1, count);
+    }
+
+    private String payload(String system, String user, double topP, int maxTokens) {
+        int inputTokens = estimateTokens(system) + estimateTokens(user);
+        if (inputTokens > maxInputTokens) {
+            throw new LLMPromptTooLargeException("The prompt is about " + inputTokens
+                    + " tokens, more than the limit of " + maxInputTokens + ".");
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("model", modelName);
+        payload.put("messages", List.of(
+                Map.of("role", "system", "content", system),
+                Map.of("role", "user", "content", user)));
+        payload.put("temperature", 0.1);
+        payload.put("top_p", topP);
+        payload.put("max_tokens", reasoningTokens + maxTokens);
+        try {
+            return MAPPER.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize the LLM payload", e);
+        }
+    }
+
+    /**
+     * Prompt text split once into literals and {name} placeholders. Braces that are not a
+     * placeholder (such as the JSON in the examples) are kept as they are.
+     */
+    static final class Template {
+
+        private static final Pattern PLACEHOLDER = Pattern.compile("\\{([a-zA-Z]+)}");
+
+        private final List<String> literals = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final int literalLength;
+
+        private Template(String text) {
+            Matcher matcher = PLACEHOLDER.matcher(text);
+            int last = 0;
+            while (matcher.find()) {
+                literals.add(text.substring(last, matcher.start()));
+                names.add(matcher.group(1));
+                last = matcher.end();
+            }
+            literals.add(text.substring(last));
+            literalLength = text.length();
+        }
+
+        static Template compile(String text) {
+            return new Template(text);
+        }
+
+        String render(Map<String, String> values) {
+            StringBuilder sb = new StringBuilder(literalLength + 256);
+            for (int i = 0; i < names.size(); i++) {
+                sb.append(literals.get(i));
+                String value = values.get(names.get(i));
+                sb.append(value != null ? value : "");
+            }
+            return sb.append(literals.get(names.size())).toString();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.testleaf.llm;
+
+/**
+ * The request would not fit one LLM call: the prompt is over the input budget, or the
+ * expected output is over the max_tokens limit. Thrown before anything is sent, so the
+ * caller can split the input instead of getting a truncated response.
+ */
+public class LLMPromptTooLargeException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public LLMPromptTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,22 @@
+package com.testleaf.llm;
+
+/**
+ * The LLM provider did not produce a completion, even after retries (rate limited, server
+ * error, or unreachable). Thrown instead of handing the error body on as if it were a response.
+ */
+public class LLMProviderException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    // HTTP status from the provider, or 0 when it could not be reached
+    private final int status;
+
+    public LLMProviderException(int status, String message, Throwable cause) {
+        super(message, cause);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,158 @@
+package com.testleaf.llm;
+
+import com.testleaf.llm.LLMRequestContext.Priority;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Client-side limiter for the LLM provider: one token bucket for requests per minute and one
+ * for LLM tokens per minute, both refilled continuously. Callers wait in a priority queue
+ * (interactive before bulk, then first come first served) and only the head of the queue may
+ * take from the buckets, so a large bulk call cannot be starved and cannot jump the queue.
+ *
+ * After a 429 the provider's Retry-After pauses every caller, which keeps throughput at the
+ * quota instead of alternating between bursts and rejections.
+ */
+@Component
+@RequiredArgsConstructor
+public class LLMRateLimiter {
+
+    private final MeterRegistry meterRegistry;
+
+    // 0 disables the corresponding bucket
+    @Value("${llm.rate.requests-per-minute:30}")
+    private int requestsPerMinute;
+
+    @Value("${llm.rate.tokens-per-minute:60000}")
+    private int tokensPerMinute;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>(
+            Comparator.comparing((Waiter w) -> w.priority).thenComparingLong(w -> w.sequence));
+    private long sequence;
+
+    private double requestTokens;
+    private double llmTokens;
+    private long lastRefillNanos;
+    private long pausedUntilNanos;
+
+    @PostConstruct
+    void init() {
+        requestTokens = requestsPerMinute;
+        llmTokens = tokensPerMinute;
+        lastRefillNanos = System.nanoTime();
+        Gauge.builder("llm.ratelimit.waiting", this, LLMRateLimiter::waiting).register(meterRegistry);
+    }
+
+    /**
+     * Blocks until one request and the estimated number of LLM tokens are available, at the
+     * current thread's priority. Estimates above the per-minute quota are capped to it.
+     */
+    public void acquire(int estimatedTokens) throws InterruptedException {
+        double tokens = tokensPerMinute > 0 ? Math.min(estimatedTokens, tokensPerMinute) : 0;
+        lock.lock();
+        Waiter waiter = new Waiter(LLMRequestContext.priority(), sequence++);
+        waiters.add(waiter);
+        try {
+            while (true) {
+                refill();
+                long waitNanos = waiters.peek() == waiter ? nanosUntilAvailable(tokens) : TimeUnit.SECONDS.toNanos(1);
+                if (waitNanos <= 0) {
+                    if (requestsPerMinute > 0) {
+                        requestTokens -= 1;
+                    }
+                    llmTokens -= tokens;
+                    return;
+                }
+                changed.awaitNanos(waitNanos);
+            }
+        } finally {
+            waiters.remove(waiter);
+            changed.signalAll();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Corrects the token bucket once the real usage of a call is known. The bucket may go
+     * negative, which delays the next callers accordingly.
+     */
+    public void adjust(int estimatedTokens, int actualTokens) {
+        if (tokensPerMinute <= 0) {
+            return;
+        }
+        lock.lock();
+        try {
+            llmTokens -= actualTokens - Math.min(estimatedTokens, tokensPerMinute);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops handing out permits for the given time, e.g. the provider's Retry-After.
+     */
+    public void pause(Duration duration) {
+        lock.lock();
+        try {
+            pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + duration.toNanos());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double minutes = (now - lastRefillNanos) / 60e9;
+        lastRefillNanos = now;
+        if (requestsPerMinute > 0) {
+            requestTokens = Math.min(requestsPerMinute, requestTokens + minutes * requestsPerMinute);
+        }
+        if (tokensPerMinute > 0) {
+            llmTokens = Math.min(tokensPerMinute, llmTokens + minutes * tokensPerMinute);
+        }
+    }
+
+    private long nanosUntilAvailable(double tokens) {
+        long wait = pausedUntilNanos - System.nanoTime();
+        if (requestsPerMinute > 0 && requestTokens < 1) {
+            wait = Math.max(wait, (long) ((1 - requestTokens) / requestsPerMinute * 60e9));
+        }
+        if (tokensPerMinute > 0 && llmTokens < tokens) {
+            wait = Math.max(wait, (long) ((tokens - llmTokens) / tokensPerMinute * 60e9));
+        }
+        return wait;
+    }
+
+    private int waiting() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Waiter {
+        final Priority priority;
+        final long sequence;
+
+        Waiter(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+    }
+}
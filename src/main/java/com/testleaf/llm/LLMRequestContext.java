@@ -0,0 +1,80 @@
+package com.testleaf.llm;
+
+import java.util.function.Supplier;
+
+/**
+ * Per-request settings for LLM calls, kept on the calling thread: whether to bypass the
+ * response cache, and the call's priority at the rate limiter. Executors that run LLM work
+ * use {@link #propagate(Runnable)} as TaskDecorator so the settings follow the task.
+ */
+public final class LLMRequestContext {
+
+    public enum Priority {
+        // Lower ordinal is served first
+        INTERACTIVE, BULK
+    }
+
+    private static final ThreadLocal<Boolean> CACHE_BYPASSED = new ThreadLocal<>();
+    private static final ThreadLocal<Priority> PRIORITY = new ThreadLocal<>();
+
+    private LLMRequestContext() {
+    }
+
+    public static boolean isCacheBypassed() {
+        return Boolean.TRUE.equals(CACHE_BYPASSED.get());
+    }
+
+    public static void setCacheBypassed(boolean bypassed) {
+        if (bypassed) {
+            CACHE_BYPASSED.set(Boolean.TRUE);
+        } else {
+            CACHE_BYPASSED.remove();
+        }
+    }
+
+    public static Priority priority() {
+        Priority priority = PRIORITY.get();
+        return priority == null ? Priority.INTERACTIVE : priority;
+    }
+
+    /**
+     * Runs the call with the given priority, restoring the previous one afterwards.
+     */
+    public static <T> T withPriority(Priority priority, Supplier<T> call) {
+        Priority previous = PRIORITY.get();
+        PRIORITY.set(priority);
+        try {
+            return call.get();
+        } finally {
+            restore(PRIORITY, previous);
+        }
+    }
+
+    /**
+     * TaskDecorator: carries the submitting thread's settings over to the worker thread.
+     */
+    public static Runnable propagate(Runnable task) {
+        Boolean bypassed = CACHE_BYPASSED.get();
+        Priority priority = PRIORITY.get();
+        return () -> {
+            Boolean previousBypassed = CACHE_BYPASSED.get();
+            Priority previousPriority = PRIORITY.get();
+            restore(CACHE_BYPASSED, bypassed);
+            restore(PRIORITY, priority);
+            try {
+                task.run();
+            } finally {
+                restore(CACHE_BYPASSED, previousBypassed);
+                restore(PRIORITY, previousPriority);
+            }
+        };
+    }
+
+    private static <T> void restore(ThreadLocal<T> local, T value) {
+        if (value == null) {
+            local.remove();
+        } else {
+            local.set(value);
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.testleaf.llm;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache of LLM responses keyed by the SHA-256 of the normalized request (model, messages and
+ * sampling parameters). Our prompts run at near-zero temperature, so a repeated request is
+ * answered from here instead of another long round trip.
+ *
+ * Two tiers: an in-memory LRU in front of an append-only log on disk that survives restarts.
+ * Responses older than the TTL are ignored in both tiers; once the log outgrows its cap it is
+ * compacted down to the newest half. Appends and compaction run on a single writer thread,
+ * so a put never waits for the disk and a get only reads the one record it needs.
+ */
+@Component
+@RequiredArgsConstructor
+public class LLMResponseCache {
+
+    private static final int RECORD_MAGIC = 0x4C4C4D43;
+    // magic + created millis + key hash + value length
+    private static final int HEADER_SIZE = 4 + 8 + 32 + 4;
+
+    private static final ObjectMapper CANONICAL_MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${llm.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${llm.cache.memory-entries:500}")
+    private int memoryEntries;
+
+    @Value("${llm.cache.ttl:7d}")
+    private Duration ttl;
+
+    @Value("${llm.cache.max-disk-size:256MB}")
+    private DataSize maxDiskSize;
+
+    @Value("${llm.cache.dir:${user.home}/.swagger-ra-web/llm-cache}")
+    private String cacheDir;
+
+    // Access-ordered: iteration starts at the least recently used entry. Guarded by this.
+    private final LinkedHashMap<String, MemoryEntry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    // Replaced as a whole by a compaction; only the writer thread modifies the log
+    private volatile Map<String, DiskEntry> diskIndex = new ConcurrentHashMap<>();
+    private volatile FileChannel log;
+    private Path logPath;
+    private ExecutorService writer;
+
+    private Counter memoryHits;
+    private Counter diskHits;
+    private Counter misses;
+
+    @PostConstruct
+    void init() throws IOException {
+        memoryHits = meterRegistry.counter("llm.cache.requests", "result", "hit", "tier", "memory");
+        diskHits = meterRegistry.counter("llm.cache.requests", "result", "hit", "tier", "disk");
+        misses = meterRegistry.counter("llm.cache.requests", "result", "miss", "tier", "none");
+        Gauge.builder("llm.cache.hit.ratio", this, LLMResponseCache::hitRatio).register(meterRegistry);
+        Gauge.builder("llm.cache.memory.entries", this, LLMResponseCache::memorySize).register(meterRegistry);
+        Gauge.builder("llm.cache.disk.entries", this, LLMResponseCache::diskSize).register(meterRegistry);
+        Gauge.builder("llm.cache.disk.bytes", this, LLMResponseCache::diskBytes).register(meterRegistry);
+
+        if (!enabled) {
+            return;
+        }
+        Path dir = Paths.get(cacheDir);
+        Files.createDirectories(dir);
+        logPath = dir.resolve("responses.log");
+        log = openLog();
+        diskIndex = loadIndex(log);
+        writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "llm-cache-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        System.out.println("✅ LLM response cache: " + diskIndex.size() + " responses on disk at " + logPath);
+    }
+
+    @PreDestroy
+    void close() throws IOException, InterruptedException {
+        if (writer != null) {
+            // Pending appends are written before the log is closed
+            writer.shutdown();
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        if (log != null) {
+            log.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached response for the key, or null on a miss, when disabled, or when
+     * the current request asked to bypass the cache (see LLMCacheBypassFilter). Fresh
+     * responses are still stored in that case.
+     */
+    public String get(String key) {
+        if (!enabled || key == null || LLMRequestContext.isCacheBypassed()) {
+            return null;
+        }
+        String response = fromMemory(key);
+        if (response != null) {
+            memoryHits.increment();
+            return response;
+        }
+        DiskEntry entry = diskIndex.get(key);
+        response = entry != null ? readFromDisk(key, entry) : null;
+        if (response != null) {
+            diskHits.increment();
+            remember(key, new MemoryEntry(response, entry.created));
+            return response;
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Stores the response in memory right away and queues it for the disk log.
+     */
+    public void put(String key, String response) {
+        if (!enabled || key == null || response == null) {
+            return;
+        }
+        long created = System.currentTimeMillis();
+        remember(key, new MemoryEntry(response, created));
+        try {
+            writer.execute(() -> persist(key, response, created));
+        } catch (RejectedExecutionException e) {
+            // Shutting down; the memory tier still has it
+        }
+    }
+
+    /**
+     * Cache key for a chat-completions request body: SHA-256 of the request with map keys
+     * sorted and message contents normalized (line endings, trailing whitespace). Returns
+     * null if the body is not a JSON object.
+     */
+    public static String key(String requestBody) {
+        try {
+            Map<String, Object> request = CANONICAL_MAPPER.readValue(requestBody, new TypeReference<>() {});
+            if (request.get("messages") instanceof List<?> messages) {
+                for (Object message : messages) {
+                    if (message instanceof Map<?, ?> map && map.get("content") instanceof String content) {
+                        @SuppressWarnings("unchecked")
+                        Map<String, Object> m = (Map<String, Object>) map;
+                        m.put("content", normalize(content));
+                    }
+                }
+            }
+            byte[] canonical = CANONICAL_MAPPER.writeValueAsBytes(request);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(canonical));
+        } catch (IOException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    static String normalize(String content) {
+        String[] lines = content.replace("\r\n", "\n").replace('\r', '\n').split("\n", -1);
+        StringBuilder sb = new StringBuilder(content.length());
+        for (String line : lines) {
+            sb.append(line.stripTrailing()).append('\n');
+        }
+        return sb.toString().strip();
+    }
+
+    private synchronized String fromMemory(String key) {
+        MemoryEntry entry = memory.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (isExpired(entry.created)) {
+            memory.remove(key);
+            return null;
+        }
+        return entry.response;
+    }
+
+    private synchronized void remember(String key, MemoryEntry entry) {
+        memory.put(key, entry);
+        if (memory.size() > memoryEntries) {
+            memory.remove(memory.keySet().iterator().next());
+        }
+    }
+
+    // Positional reads need no lock; an entry whose log a compaction has just closed is a miss
+    private String readFromDisk(String key, DiskEntry entry) {
+        if (isExpired(entry.created)) {
+            diskIndex.remove(key, entry);
+            return null;
+        }
+        try {
+            ByteBuffer value = ByteBuffer.allocate(entry.length);
+            while (value.hasRemaining()) {
+                if (entry.log.read(value, entry.offset + value.position()) < 0) {
+                    throw new IOException("Unexpected end of cache log");
+                }
+            }
+            return new String(value.array(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            diskIndex.remove(key, entry);
+            return null;
+        }
+    }
+
+    // On the writer thread
+    private void persist(String key, String response, long created) {
+        try {
+            append(key, response, created);
+            if (log.size() > maxDiskSize.toBytes()) {
+                compact();
+            }
+        } catch (IOException e) {
+            // The memory tier still has it; the disk tier just misses this one
+            System.err.println("⚠️ Could not persist LLM response: " + e.getMessage());
+        }
+    }
+
+    private void append(String key, String response, long created) throws IOException {
+        byte[] value = response.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + value.length);
+        record.putInt(RECORD_MAGIC).putLong(created).put(HexFormat.of().parseHex(key)).putInt(value.length).put(value);
+        record.flip();
+        long offset = log.size();
+        while (record.hasRemaining()) {
+            log.write(record, offset + record.position());
+        }
+        diskIndex.put(key, new DiskEntry(log, offset + HEADER_SIZE, value.length, created));
+    }
+
+    private FileChannel openLog() throws IOException {
+        return FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // Builds the index of the log. A torn record at the end (crash mid-write) is cut off.
+    private Map<String, DiskEntry> loadIndex(FileChannel log) throws IOException {
+        Map<String, DiskEntry> index = new ConcurrentHashMap<>();
+        long size = log.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        byte[] keyBytes = new byte[32];
+        while (offset + HEADER_SIZE <= size) {
+            header.clear();
+            log.read(header, offset);
+            header.flip();
+            if (header.getInt() != RECORD_MAGIC) {
+                break;
+            }
+            long created = header.getLong();
+            header.get(keyBytes);
+            int length = header.getInt();
+            if (length < 0 || offset + HEADER_SIZE + length > size) {
+                break;
+            }
+            String key = HexFormat.of().formatHex(keyBytes);
+            if (isExpired(created)) {
+                index.remove(key);
+            } else {
+                index.put(key, new DiskEntry(log, offset + HEADER_SIZE, length, created));
+            }
+            offset += HEADER_SIZE + length;
+        }
+        if (offset < size) {
+            log.truncate(offset);
+        }
+        return index;
+    }
+
+    // Rewrites the log with the newest live responses that fit in half the cap. Readers keep
+    // using the old log until the new index is published.
+    private void compact() throws IOException {
+        List<Map.Entry<String, DiskEntry>> live = new ArrayList<>();
+        for (Map.Entry<String, DiskEntry> entry : diskIndex.entrySet()) {
+            if (!isExpired(entry.getValue().created)) {
+                live.add(entry);
+            }
+        }
+        live.sort(Comparator.comparingLong((Map.Entry<String, DiskEntry> e) -> e.getValue().created).reversed());
+
+        long budget = maxDiskSize.toBytes() / 2;
+        List<Map.Entry<String, DiskEntry>> kept = new ArrayList<>();
+        long keptBytes = 0;
+        for (Map.Entry<String, DiskEntry> entry : live) {
+            long recordSize = HEADER_SIZE + entry.getValue().length;
+            if (keptBytes + recordSize > budget) {
+                break;
+            }
+            kept.add(entry);
+            keptBytes += recordSize;
+        }
+
+        Path compacted = logPath.resolveSibling("responses.log.compact");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // Oldest first, so a reload sees the same order as a fresh log
+            for (int i = kept.size() - 1; i >= 0; i--) {
+                DiskEntry entry = kept.get(i).getValue();
+                long start = entry.offset - HEADER_SIZE;
+                log.transferTo(start, HEADER_SIZE + entry.length, out);
+            }
+        }
+        FileChannel old = log;
+        old.close();
+        try {
+            Files.move(compacted, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            FileChannel reopened = openLog();
+            diskIndex = loadIndex(reopened);
+            log = reopened;
+        }
+    }
+
+    private boolean isExpired(long created) {
+        return System.currentTimeMillis() - created > ttl.toMillis();
+    }
+
+    private double hitRatio() {
+        double hits = memoryHits.count() + diskHits.count();
+        double total = hits + misses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private synchronized int memorySize() {
+        return memory.size();
+    }
+
+    private int diskSize() {
+        return diskIndex.size();
+    }
+
+    private long diskBytes() {
+        FileChannel current = log;
+        try {
+            return current == null ? 0 : current.size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static class MemoryEntry {
+        final String response;
+        final long created;
+
+        MemoryEntry(String response, long created) {
+            this.response = response;
+            this.created = created;
+        }
+    }
+
+    private static class DiskEntry {
+        // The log the record was written to; a compaction moves it to a new one
+        final FileChannel log;
+        final long offset;
+        final int length;
+        final long created;
+
+        DiskEntry(FileChannel log, long offset, int length, long created) {
+            this.log = log;
+            this.offset = offset;
+            this.length = length;
+            this.created = created;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.testleaf.llm;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Coalesces identical LLM requests that are in flight at the same time: the first caller
+ * (the leader) makes the call, later callers with the same normalized request key wait for
+ * the leader's result instead of sending their own. Counted in llm.requests.coalesced.
+ */
+@Component
+@RequiredArgsConstructor
+public class LLMSingleFlight {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${llm.single-flight.enabled:true}")
+    private boolean enabled;
+
+    private final ConcurrentHashMap<String, CompletableFuture<LLMCompletion>> inFlight = new ConcurrentHashMap<>();
+
+    private Counter leaders;
+    private Counter coalesced;
+
+    @PostConstruct
+    void registerMetrics() {
+        leaders = meterRegistry.counter("llm.requests.leaders");
+        coalesced = meterRegistry.counter("llm.requests.coalesced");
+        Gauge.builder("llm.requests.inflight", inFlight, ConcurrentHashMap::size).register(meterRegistry);
+    }
+
+    interface Call {
+        LLMCompletion execute() throws IOException;
+    }
+
+    /**
+     * Runs the call, or waits for the identical call already in flight. The leader's
+     * exception, if any, is rethrown to every caller.
+     *
+     * @param key      normalized request key (see LLMResponseCache.key); null runs the call alone
+     * @param call     the call to make when this caller is the leader
+     * @param onJoined invoked with the result when this caller joined another call
+     */
+    LLMCompletion run(String key, Call call, Consumer<LLMCompletion> onJoined) throws IOException {
+        if (!enabled || key == null) {
+            return call.execute();
+        }
+
+        CompletableFuture<LLMCompletion> mine = new CompletableFuture<>();
+        CompletableFuture<LLMCompletion> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            LLMCompletion result = await(existing);
+            if (onJoined != null) {
+                onJoined.accept(result);
+            }
+            return result;
+        }
+
+        leaders.increment();
+        try {
+            LLMCompletion result = call.execute();
+            mine.complete(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static LLMCompletion await(CompletableFuture<LLMCompletion> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an identical LLM request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
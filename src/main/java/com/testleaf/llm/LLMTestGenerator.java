@@ -1,34 +1,42 @@
 package com.testleaf.llm;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class LLMTestGenerator {
 
-    @Value("${llm.api.url}")
-    private String llmApiUrl;
+    // Tag of this service's calls in the llm.* metrics
+    private static final String SERVICE = "test-generation";
 
-    @Value("${llm.api.key}")
-    private String apiKey;
-
-    @Value("${llm.model}")
-    private String modelName;
+    private final LLMClient llmClient;
+    private final LLMPromptBuilder promptBuilder;
 
     /**
      * Generates test cases given API details and a list of test types.
      */
     public String generateTestCases(String apiDetails, List<String> testTypes) {
+        return generateTestCases(apiDetails, testTypes, null);
+    }
+
+    /**
+     * Same as above, but asks for a specific test class name (used when a spec is
+     * generated in several chunks, one class per chunk).
+     */
+    public String generateTestCases(String apiDetails, List<String> testTypes, String className) {
+        return generateTestCases(apiDetails, testTypes, className, null);
+    }
+
+    /**
+     * When onToken is given, the completion is streamed and every piece of text is passed
+     * to it as it arrives; the full response is still returned at the end.
+     */
+    public String generateTestCases(String apiDetails, List<String> testTypes, String className,
+                                    Consumer<String> onToken) {
         if (apiDetails == null || apiDetails.isEmpty()) {
             return "No valid API details to generate test cases.";
         }
@@ -73,61 +81,11 @@ public class LLMTestGenerator {
         
         System.out.println(testTypeLine);
 
-        
-        // Build the user prompt using the API details.
-        String userPrompt = "Generate REST API test cases using Rest Assured (Java, TestNG) for the following API specification:\n"
-                            + apiDetails;
-
-        try {
-            // Prepare the chat messages
-            List<Map<String, String>> messages = new ArrayList<>();
-            Map<String, String> systemMessage = new HashMap<>();
-            systemMessage.put("role", "system");
+        // Throws LLMPromptTooLargeException when the selection does not fit one call
+        String requestBody = promptBuilder.testGeneration(apiDetails, testTypeLine, testTypeCount(testTypes), className);
 
-            String systemContent =
-                    "You are a helpful assistant that generates Java code for API tests. "
-                  + "Your response must contain only Java code enclosed in a single code block using triple backticks (```java ... ```). "
-                  + "- Do not include any additional text explanations. "
-                  + "- Be a complete and executable Java class. "
-                  + "- Use only standard and correct imports (e.g., org.testng.Assert, io.restassured.RestAssured). "
-                  + testTypeLine
-                  + "- Add package as automation.tests "
-                  + "- Write comments on the code "
-                  + "- Print output of the API response "
-                  + "- Generate Java code that is compatible with Java 8 version ONLY "
-                  + "- Use BeforeMethod of Testng with hardcoded baseURI "
-                  + "- DO NOT add any assertion other than status code "
-                  + "- DO NOT use Arrays.stream method in the generated code "
-                  + "- The generated code should use only the Java methods belonging to RestAssured and TestNG compatible versions "
-                  + "- If you parse JSON (e.g., new ObjectMapper().readTree(...)), handle or declare any exceptions (throws Exception or try/catch).";
-            
-            systemMessage.put("content", systemContent);
-            messages.add(systemMessage);
-
-            // Prepare the user message with API details
-            Map<String, String> userMessage = new HashMap<>();
-            userMessage.put("role", "user");
-            userMessage.put("content", userPrompt);
-            messages.add(userMessage);
-
-            // Build the request payload
-            Map<String, Object> payload = new HashMap<>();
-            payload.put("model", modelName);
-            payload.put("messages", messages);
-            payload.put("temperature", 0.1);
-            payload.put("top_p", 0.2);
-            payload.put("max_tokens", 10000);
-
-            ObjectMapper mapper = new ObjectMapper();
-            String requestBody = mapper.writeValueAsString(payload);
-
-            // Call the LLM endpoint
-            return callLLMApi(requestBody);
-
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "Error building JSON payload: " + e.getMessage();
-        }
+        // Call the LLM endpoint
+        return llmClient.call(SERVICE, requestBody, onToken);
     }
 
     // For backward compatibility: defaults to positive tests if testTypes is not provided.
@@ -135,20 +93,20 @@ public class LLMTestGenerator {
         return generateTestCases(apiDetails, new ArrayList<>());
     }
 
-    private String callLLMApi(String requestBody) {
-        try (var httpClient = HttpClients.createDefault()) {
-            var request = new HttpPost(llmApiUrl);
-            request.setHeader("Content-Type", "application/json");
-            request.setHeader("Authorization", "Bearer " + apiKey);
-            request.setEntity(new StringEntity(requestBody));
-            System.out.println(requestBody);
-
-            try (CloseableHttpResponse response = httpClient.execute(request)) {
-                return EntityUtils.toString(response.getEntity());
+    /**
+     * Number of test types the prompt asks for (each adds one test per operation).
+     */
+    static int testTypeCount(List<String> testTypes) {
+        if (testTypes == null || testTypes.size() <= 1) {
+            return 1;
+        }
+        Set<String> types = new HashSet<>();
+        for (String type : testTypes) {
+            String t = type.toLowerCase();
+            if ("positive".equals(t) || "negative".equals(t) || "edge".equals(t)) {
+                types.add(t);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "Error calling LLM API: " + e.getMessage();
         }
+        return Math.max(1, types.size());
     }
 }
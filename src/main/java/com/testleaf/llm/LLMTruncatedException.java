@@ -0,0 +1,15 @@
+package com.testleaf.llm;
+
+/**
+ * The provider stopped the completion at max_tokens (finish_reason "length"), so the code in
+ * it is incomplete. Not cached, and not handed on as generated code.
+ */
+public class LLMTruncatedException extends LLMProviderException {
+
+    private static final long serialVersionUID = 1L;
+
+    public LLMTruncatedException(int maxTokens) {
+        super(200, "The LLM response was cut off at max_tokens (" + maxTokens + ") before it was complete."
+                + " Raise llm.output.reasoning-tokens or llm.output.tokens-per-test, or select fewer operations.", null);
+    }
+}
@@ -0,0 +1,30 @@
+package com.testleaf.llm;
+
+import java.time.Duration;
+
+/**
+ * The circuit breaker for the LLM endpoint is open: the call was rejected without contacting
+ * the provider. Callers answer 503 with Retry-After instead of waiting on a degraded provider.
+ */
+public class LLMUnavailableException extends LLMProviderException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Duration retryAfter;
+
+    public LLMUnavailableException(String message, Duration retryAfter) {
+        super(503, message, null);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Retry-After in whole seconds, rounded up.
+     */
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+}
@@ -1,62 +1,24 @@
 package com.testleaf.llm;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.stereotype.Service;
 
 @Service
 public class TestCodeGenerator {
 
-	
-	public String extractTypescriptCode(String llmResponse) {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(llmResponse);
-            JsonNode choicesNode = rootNode.path("choices");
-            if (choicesNode.isArray() && choicesNode.size() > 0) {
-                JsonNode messageNode = choicesNode.get(0).path("message");
-                String content = messageNode.path("content").asText().trim();
-                if (content.contains("```typescript")) {
-                    int start = content.indexOf("```typescript");
-                    int end = content.lastIndexOf("```");
-                    if (start != -1 && end != -1 && end > start) {
-                        content = content.substring(start + "```typescript".length(), end).trim();
-                    }
-                }
-                return content;
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return convertToJavaCode(llmResponse);
+    /**
+     * Extract the Playwright TypeScript code from the LLM's response JSON.
+     */
+    public String extractTypescriptCode(String llmResponse) {
+        String code = CodeFenceExtractor.typescript().extractCompletion(llmResponse);
+        return code != null ? code : convertToJavaCode(llmResponse);
     }
+
     /**
      * Extract the Java code from the LLM's response JSON.
      */
     public String extractJavaCode(String llmResponse) {
-        try {
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode rootNode = mapper.readTree(llmResponse);
-            JsonNode choicesNode = rootNode.path("choices");
-            if (choicesNode.isArray() && choicesNode.size() > 0) {
-                JsonNode messageNode = choicesNode.get(0).path("message");
-                String content = messageNode.path("content").asText().trim();
-                if (content.contains("```java")) {
-                    int start = content.indexOf("```java");
-                    int end = content.lastIndexOf("```");
-                    if (start != -1 && end != -1 && end > start) {
-                        content = content.substring(start + "```java".length(), end).trim();
-                    }
-                } else if (content.contains("package")) {
-                    int index = content.indexOf("package");
-                    content = content.substring(index).trim();
-                }
-                return addMissingImports(content);
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
-        return convertToJavaCode(llmResponse);
+        String code = CodeFenceExtractor.java().extractCompletion(llmResponse);
+        return addMissingImports(code != null ? code : llmResponse);
     }
 
     public String convertToJavaCode(String extractedCode) {
@@ -0,0 +1,280 @@
+package com.testleaf.parser;
+
+import io.swagger.v3.oas.models.Operation;
+import io.swagger.v3.oas.models.media.ArraySchema;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.MediaType;
+import io.swagger.v3.oas.models.media.Schema;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compact, immutable view of one operation in a spec: the bits test generation needs,
+ * with schemas kept as short descriptors ("Pet", "array<Pet>", "string/uuid") rather than inlined.
+ */
+public class ApiOperation {
+
+    private final String method;
+    private final String path;
+    private final String operationId;
+    private final String summary;
+    private final List<String> tags;
+    private final List<Parameter> parameters;
+    private final RequestBody requestBody;
+    private final List<Response> responses;
+    private final List<String> schemaRefs;
+
+    public ApiOperation(String method, String path, String operationId, String summary, List<String> tags,
+                        List<Parameter> parameters, RequestBody requestBody, List<Response> responses,
+                        List<String> schemaRefs) {
+        this.method = method;
+        this.path = path;
+        this.operationId = operationId;
+        this.summary = summary;
+        this.tags = tags;
+        this.parameters = parameters;
+        this.requestBody = requestBody;
+        this.responses = responses;
+        this.schemaRefs = schemaRefs;
+    }
+
+    /**
+     * Builds the compact view from a swagger-parser operation; path-level parameters are merged in
+     * (an operation parameter with the same name and location replaces the path-level one).
+     * Component parameters, request bodies and responses are looked up through the resolver;
+     * schemas are only recorded by name.
+     */
+    static ApiOperation from(String method, String path, Operation operation,
+                             List<io.swagger.v3.oas.models.parameters.Parameter> pathParameters,
+                             SchemaResolver resolver) {
+        Set<String> refs = new LinkedHashSet<>();
+
+        // An operation parameter overrides the path-level one with the same name and location
+        Map<String, Parameter> byKey = new LinkedHashMap<>();
+        Map<String, io.swagger.v3.oas.models.parameters.Parameter> resolvedByKey = new LinkedHashMap<>();
+        for (List<io.swagger.v3.oas.models.parameters.Parameter> level
+                : Arrays.asList(pathParameters, operation.getParameters())) {
+            if (level == null) {
+                continue;
+            }
+            for (io.swagger.v3.oas.models.parameters.Parameter p : level) {
+                io.swagger.v3.oas.models.parameters.Parameter resolved = resolver.resolveParameter(p);
+                if (resolved == null) {
+                    byKey.put("$ref:" + p.get$ref(), new Parameter(refName(p.get$ref()), "$ref", false, null));
+                    continue;
+                }
+                String key = resolved.getIn() + ":" + resolved.getName();
+                byKey.put(key, Parameter.from(resolved));
+                resolvedByKey.put(key, resolved);
+            }
+        }
+        resolvedByKey.values().forEach(resolved -> SchemaResolver.collectRefs(resolved.getSchema(), refs));
+        List<Parameter> parameters = new ArrayList<>(byKey.values());
+
+        RequestBody requestBody = null;
+        if (operation.getRequestBody() != null) {
+            io.swagger.v3.oas.models.parameters.RequestBody body =
+                    resolver.resolveRequestBody(operation.getRequestBody());
+            String bodyRef = operation.getRequestBody().get$ref();
+            if (body == null) {
+                requestBody = new RequestBody(refName(bodyRef), false, Collections.emptyList(), null);
+            } else {
+                SchemaResolver.collectRefs(body.getContent(), refs);
+                requestBody = new RequestBody(
+                        bodyRef != null ? refName(bodyRef) : null,
+                        Boolean.TRUE.equals(body.getRequired()),
+                        contentTypes(body.getContent()),
+                        describe(firstSchema(body.getContent())));
+            }
+        }
+
+        List<Response> responses = new ArrayList<>();
+        if (operation.getResponses() != null) {
+            operation.getResponses().forEach((code, response) -> {
+                io.swagger.v3.oas.models.responses.ApiResponse resolved = resolver.resolveResponse(response);
+                if (resolved == null) {
+                    responses.add(new Response(code, refName(response.get$ref()), null));
+                    return;
+                }
+                SchemaResolver.collectRefs(resolved.getContent(), refs);
+                responses.add(new Response(code, resolved.getDescription(), describe(firstSchema(resolved.getContent()))));
+            });
+        }
+
+        return new ApiOperation(
+                method,
+                path,
+                operation.getOperationId(),
+                operation.getSummary(),
+                operation.getTags() == null ? Collections.emptyList() : List.copyOf(operation.getTags()),
+                List.copyOf(parameters),
+                requestBody,
+                List.copyOf(responses),
+                List.copyOf(refs));
+    }
+
+    /**
+     * Unique key of the operation within its spec, e.g. "GET /pets/{petId}".
+     */
+    public String getKey() {
+        return method + " " + path;
+    }
+
+    public String getMethod() { return method; }
+    public String getPath() { return path; }
+    public String getOperationId() { return operationId; }
+    public String getSummary() { return summary; }
+    public List<String> getTags() { return tags; }
+    public List<Parameter> getParameters() { return parameters; }
+    public RequestBody getRequestBody() { return requestBody; }
+    public List<Response> getResponses() { return responses; }
+
+    /**
+     * Component schemas referenced directly by this operation's parameters, body and responses.
+     */
+    public List<String> getSchemaRefs() { return schemaRefs; }
+
+    /**
+     * Rough retained heap size, used for cache weighing.
+     */
+    long estimatedSize() {
+        long size = 64 + chars(path) + chars(operationId) + chars(summary);
+        for (String tag : tags) {
+            size += chars(tag);
+        }
+        for (Parameter p : parameters) {
+            size += 32 + chars(p.name) + chars(p.schema);
+        }
+        if (requestBody != null) {
+            size += 32 + chars(requestBody.schema);
+        }
+        for (Response r : responses) {
+            size += 32 + chars(r.description) + chars(r.schema);
+        }
+        for (String ref : schemaRefs) {
+            size += chars(ref);
+        }
+        return size;
+    }
+
+    private static long chars(String s) {
+        return s == null ? 0 : 40 + 2L * s.length();
+    }
+
+    private static List<String> contentTypes(Content content) {
+        return content == null ? Collections.emptyList() : List.copyOf(content.keySet());
+    }
+
+    private static Schema<?> firstSchema(Content content) {
+        if (content == null || content.isEmpty()) {
+            return null;
+        }
+        MediaType mediaType = content.values().iterator().next();
+        return mediaType == null ? null : mediaType.getSchema();
+    }
+
+    /**
+     * Short schema descriptor: the component name for $refs, "array<...>" for arrays, otherwise type[/format].
+     */
+    static String describe(Schema<?> schema) {
+        if (schema == null) {
+            return null;
+        }
+        if (schema.get$ref() != null) {
+            return refName(schema.get$ref());
+        }
+        if (schema instanceof ArraySchema || "array".equals(schema.getType())) {
+            return "array<" + describe(schema.getItems()) + ">";
+        }
+        String type = schema.getType();
+        if (type == null && schema.getTypes() != null && !schema.getTypes().isEmpty()) {
+            type = String.join("|", schema.getTypes());
+        }
+        if (type == null) {
+            type = "object";
+        }
+        return schema.getFormat() == null ? type : type + "/" + schema.getFormat();
+    }
+
+    static String refName(String ref) {
+        int idx = ref.lastIndexOf('/');
+        return idx >= 0 ? ref.substring(idx + 1) : ref;
+    }
+
+    public static class Parameter {
+        private final String name;
+        private final String in;
+        private final boolean required;
+        private final String schema;
+
+        public Parameter(String name, String in, boolean required, String schema) {
+            this.name = name;
+            this.in = in;
+            this.required = required;
+            this.schema = schema;
+        }
+
+        static Parameter from(io.swagger.v3.oas.models.parameters.Parameter p) {
+            return new Parameter(p.getName(), p.getIn(), Boolean.TRUE.equals(p.getRequired()),
+                    describe(p.getSchema()));
+        }
+
+        public String getName() { return name; }
+        public String getIn() { return in; }
+        public boolean isRequired() { return required; }
+        public String getSchema() { return schema; }
+    }
+
+    public static class RequestBody {
+        private final String ref;
+        private final boolean required;
+        private final List<String> contentTypes;
+        private final String schema;
+
+        public RequestBody(String ref, boolean required, List<String> contentTypes, String schema) {
+            this.ref = ref;
+            this.required = required;
+            this.contentTypes = contentTypes;
+            this.schema = schema;
+        }
+
+        public String getRef() { return ref; }
+        public boolean isRequired() { return required; }
+        public List<String> getContentTypes() { return contentTypes; }
+        public String getSchema() { return schema; }
+    }
+
+    public static class Response {
+        private final String code;
+        private final String description;
+        private final String schema;
+
+        public Response(String code, String description, String schema) {
+            this.code = code;
+            this.description = description;
+            this.schema = schema;
+        }
+
+        public String getCode() { return code; }
+        public String getDescription() { return description; }
+        public String getSchema() { return schema; }
+    }
+
+    /**
+     * Converts a swagger-parser operations map key set into catalog entries for one path.
+     */
+    static void collect(String path, io.swagger.v3.oas.models.PathItem pathItem, SchemaResolver resolver,
+                        List<ApiOperation> out) {
+        for (Map.Entry<io.swagger.v3.oas.models.PathItem.HttpMethod, Operation> entry
+                : pathItem.readOperationsMap().entrySet()) {
+            out.add(from(entry.getKey().name(), path, entry.getValue(), pathItem.getParameters(), resolver));
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.testleaf.parser;
+
+import io.swagger.v3.oas.models.OpenAPI;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Immutable, indexed catalog of the operations in a spec. Built once at parse time and
+ * indexed by tag, HTTP method, path (for prefix lookups), operationId and operation key.
+ */
+public class OperationCatalog {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final String title;
+    private final String version;
+    private final List<ApiOperation> operations;
+
+    private final Map<String, List<ApiOperation>> byTag = new HashMap<>();
+    private final Map<String, List<ApiOperation>> byMethod = new HashMap<>();
+    private final NavigableMap<String, List<ApiOperation>> byPath = new TreeMap<>();
+    private final Map<String, ApiOperation> byOperationId = new HashMap<>();
+    private final Map<String, ApiOperation> byKey = new HashMap<>();
+    private final Map<ApiOperation, Integer> positions = new IdentityHashMap<>();
+
+    public OperationCatalog(String title, String version, List<ApiOperation> operations) {
+        this.title = title;
+        this.version = version;
+        this.operations = List.copyOf(operations);
+        for (ApiOperation op : this.operations) {
+            positions.put(op, positions.size());
+            op.getTags().forEach(tag -> byTag.computeIfAbsent(tag, t -> new ArrayList<>()).add(op));
+            byMethod.computeIfAbsent(op.getMethod(), m -> new ArrayList<>()).add(op);
+            byPath.computeIfAbsent(op.getPath(), p -> new ArrayList<>()).add(op);
+            if (op.getOperationId() != null) {
+                byOperationId.putIfAbsent(op.getOperationId(), op);
+            }
+            byKey.put(op.getKey(), op);
+        }
+    }
+
+    /**
+     * Builds the catalog from a parsed OpenAPI model, in document order.
+     */
+    public static OperationCatalog from(OpenAPI openAPI, SchemaResolver resolver) {
+        List<ApiOperation> operations = new ArrayList<>();
+        if (openAPI.getPaths() != null) {
+            openAPI.getPaths().forEach((path, pathItem) -> ApiOperation.collect(path, pathItem, resolver, operations));
+        }
+        String title = openAPI.getInfo() == null ? null : openAPI.getInfo().getTitle();
+        String version = openAPI.getInfo() == null ? null : openAPI.getInfo().getVersion();
+        return new OperationCatalog(title, version, operations);
+    }
+
+    public String getTitle() { return title; }
+    public String getVersion() { return version; }
+    public List<ApiOperation> getOperations() { return operations; }
+
+    public int size() {
+        return operations.size();
+    }
+
+    /**
+     * Tags with their operation counts, in first-seen order.
+     */
+    public Map<String, Integer> tagCounts() {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (ApiOperation op : operations) {
+            op.getTags().forEach(tag -> counts.merge(tag, 1, Integer::sum));
+        }
+        return counts;
+    }
+
+    /**
+     * Looks up an operation by key ("GET /pets") or operationId.
+     */
+    public ApiOperation find(String keyOrOperationId) {
+        ApiOperation op = byKey.get(keyOrOperationId);
+        return op != null ? op : byOperationId.get(keyOrOperationId);
+    }
+
+    /**
+     * Resolves a list of keys/operationIds; unknown entries are skipped.
+     */
+    public List<ApiOperation> findAll(Collection<String> keysOrOperationIds) {
+        Set<ApiOperation> result = new LinkedHashSet<>();
+        for (String id : keysOrOperationIds) {
+            ApiOperation op = find(id);
+            if (op != null) {
+                result.add(op);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Filters the catalog; null or blank filters are ignored. The most selective index is used
+     * to pick candidates and the remaining filters are applied on top, preserving document order.
+     */
+    public List<ApiOperation> query(String tag, String pathPrefix, String method, String operationId) {
+        List<Collection<ApiOperation>> candidates = new ArrayList<>();
+        List<Predicate<ApiOperation>> filters = new ArrayList<>();
+
+        if (hasText(operationId)) {
+            ApiOperation op = byOperationId.get(operationId);
+            candidates.add(op == null ? Collections.emptyList() : List.of(op));
+            filters.add(o -> operationId.equals(o.getOperationId()));
+        }
+        if (hasText(tag)) {
+            candidates.add(byTag.getOrDefault(tag, Collections.emptyList()));
+            filters.add(o -> o.getTags().contains(tag));
+        }
+        if (hasText(method)) {
+            String upper = method.toUpperCase(Locale.ROOT);
+            candidates.add(byMethod.getOrDefault(upper, Collections.emptyList()));
+            filters.add(o -> upper.equals(o.getMethod()));
+        }
+        if (hasText(pathPrefix)) {
+            List<ApiOperation> matching = new ArrayList<>();
+            byPath.subMap(pathPrefix, true, pathPrefix + Character.MAX_VALUE, false)
+                  .values().forEach(matching::addAll);
+            candidates.add(matching);
+            filters.add(o -> o.getPath().startsWith(pathPrefix));
+        }
+
+        if (candidates.isEmpty()) {
+            return operations;
+        }
+        Collection<ApiOperation> smallest = candidates.get(0);
+        for (Collection<ApiOperation> c : candidates) {
+            if (c.size() < smallest.size()) {
+                smallest = c;
+            }
+        }
+        Predicate<ApiOperation> all = filters.stream().reduce(o -> true, Predicate::and);
+        List<ApiOperation> result = new ArrayList<>();
+        for (ApiOperation op : smallest) {
+            if (all.test(op)) {
+                result.add(op);
+            }
+        }
+        // Path-prefix candidates come out in path order; restore document order
+        if (result.size() > 1) {
+            result.sort(Comparator.comparing(positions::get));
+        }
+        return result;
+    }
+
+    /**
+     * One page of the filtered catalog.
+     */
+    public Page page(String tag, String pathPrefix, String method, String operationId, int page, int size) {
+        int pageSize = size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        int pageNumber = Math.max(page, 0);
+        List<ApiOperation> matches = query(tag, pathPrefix, method, operationId);
+        int from = (int) Math.min((long) pageNumber * pageSize, matches.size());
+        int to = Math.min(from + pageSize, matches.size());
+        return new Page(matches.subList(from, to), matches.size(), pageNumber, pageSize);
+    }
+
+    /**
+     * Renders operations in the "Path: ..., Method: ..., Summary: ..." text form used for prompts.
+     */
+    public static String toApiDetails(List<ApiOperation> operations) {
+        StringBuilder sb = new StringBuilder();
+        for (ApiOperation op : operations) {
+            sb.append("Path: ").append(op.getPath())
+              .append(", Method: ").append(op.getMethod())
+              .append(", Summary: ").append(op.getSummary())
+              .append("\n");
+        }
+        return sb.toString();
+    }
+
+    public String toApiDetails() {
+        return toApiDetails(operations);
+    }
+
+    long estimatedSize() {
+        // Operations plus roughly six index references per operation
+        long size = 256;
+        for (ApiOperation op : operations) {
+            size += op.estimatedSize() + 6 * 48;
+        }
+        return size;
+    }
+
+    private static boolean hasText(String s) {
+        return s != null && !s.isBlank();
+    }
+
+    public static class Page {
+        private final List<ApiOperation> items;
+        private final int total;
+        private final int page;
+        private final int size;
+
+        public Page(List<ApiOperation> items, int total, int page, int size) {
+            this.items = items;
+            this.total = total;
+            this.page = page;
+            this.size = size;
+        }
+
+        public List<ApiOperation> getItems() { return items; }
+        public int getTotal() { return total; }
+        public int getPage() { return page; }
+        public int getSize() { return size; }
+    }
+}
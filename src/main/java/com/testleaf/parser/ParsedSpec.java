@@ -0,0 +1,74 @@
+package com.testleaf.parser;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Result of parsing one uploaded Swagger/OpenAPI document.
+ */
+public class ParsedSpec {
+
+    private final String specId;
+    private final OperationCatalog catalog;
+    private final SchemaResolver schemaResolver;
+    private final long sourceSize;
+
+    public ParsedSpec(String specId, OperationCatalog catalog, SchemaResolver schemaResolver, long sourceSize) {
+        this.specId = specId;
+        this.catalog = catalog;
+        this.schemaResolver = schemaResolver;
+        this.sourceSize = sourceSize;
+    }
+
+    /**
+     * Content hash of the uploaded document; also the cache key.
+     */
+    public String getSpecId() {
+        return specId;
+    }
+
+    public OperationCatalog getCatalog() {
+        return catalog;
+    }
+
+    /**
+     * Lazy, memoizing $ref resolver over the spec's components.
+     */
+    public SchemaResolver getSchemaResolver() {
+        return schemaResolver;
+    }
+
+    /**
+     * The flat "Path: ..., Method: ..., Summary: ..." text for the whole spec.
+     */
+    public String getApiDetails() {
+        return catalog.toApiDetails();
+    }
+
+    /**
+     * Prompt text for a selection of operations: the apiDetails lines followed by one
+     * signature per component schema they reach, each shared schema listed once.
+     */
+    public String promptDetails(List<ApiOperation> operations) {
+        StringBuilder sb = new StringBuilder(OperationCatalog.toApiDetails(operations));
+        Set<String> refs = new LinkedHashSet<>();
+        operations.forEach(op -> refs.addAll(op.getSchemaRefs()));
+        if (!refs.isEmpty()) {
+            sb.append("Schemas (* = required):\n").append(schemaResolver.describeSchemas(refs));
+        }
+        return sb.toString();
+    }
+
+    public long getSourceSize() {
+        return sourceSize;
+    }
+
+    /**
+     * Approximate retained heap size, used for cache eviction.
+     */
+    public long estimatedSize() {
+        // The unresolved component model retains roughly as much as the source document
+        return catalog.estimatedSize() + sourceSize;
+    }
+}
@@ -0,0 +1,151 @@
+package com.testleaf.parser;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Content-addressed LRU cache of parsed specs, keyed by the SHA-256 of the uploaded bytes.
+ * Evicts least recently used entries once either the entry count or the estimated size
+ * limit is exceeded.
+ *
+ * It is also where the specId endpoints (catalog, diff, generation by specId, jobs) find
+ * parsed specs, so spec.cache.enabled=false only turns off reuse: every upload is parsed
+ * again, but the result is still stored and can be looked up by its id.
+ */
+@Component
+@RequiredArgsConstructor
+public class ParsedSpecCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${spec.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${spec.cache.max-entries:64}")
+    private int maxEntries;
+
+    @Value("${spec.cache.max-bytes:134217728}")
+    private long maxBytes;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<String, ParsedSpec> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    void registerMetrics() {
+        hits = meterRegistry.counter("spec.cache.hits");
+        misses = meterRegistry.counter("spec.cache.misses");
+        evictions = meterRegistry.counter("spec.cache.evictions");
+        Gauge.builder("spec.cache.entries", this, ParsedSpecCache::size).register(meterRegistry);
+        Gauge.builder("spec.cache.bytes", this, ParsedSpecCache::currentBytes).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached spec for the given content key, for reuse instead of parsing again;
+     * null on a miss, or always when reuse is disabled.
+     */
+    public synchronized ParsedSpec get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        ParsedSpec spec = entries.get(key);
+        if (spec == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return spec;
+    }
+
+    /**
+     * Looks up a spec by id for browsing; unlike {@link #get(String)} this is not counted as a hit or miss.
+     */
+    public synchronized ParsedSpec find(String specId) {
+        return entries.get(specId);
+    }
+
+    public synchronized void put(String key, ParsedSpec spec) {
+        if (spec == null) {
+            return;
+        }
+        long size = spec.estimatedSize();
+        if (size > maxBytes) {
+            // Would evict everything else and still not fit
+            return;
+        }
+        ParsedSpec previous = entries.put(key, spec);
+        if (previous != null) {
+            currentBytes -= previous.estimatedSize();
+        }
+        currentBytes += size;
+        evictIfNeeded();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long currentBytes() {
+        return currentBytes;
+    }
+
+    private void evictIfNeeded() {
+        Iterator<Map.Entry<String, ParsedSpec>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || currentBytes > maxBytes) && it.hasNext()) {
+            Map.Entry<String, ParsedSpec> eldest = it.next();
+            currentBytes -= eldest.getValue().estimatedSize();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * SHA-256 hex digest of the uploaded content.
+     */
+    public static String key(byte[] content) {
+        return HexFormat.of().formatHex(sha256().digest(content));
+    }
+
+    /**
+     * SHA-256 hex digest of the remaining bytes of the buffer; the buffer's position is not moved.
+     */
+    public static String key(ByteBuffer content) {
+        MessageDigest digest = sha256();
+        digest.update(content.duplicate());
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
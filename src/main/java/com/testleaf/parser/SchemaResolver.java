@@ -0,0 +1,457 @@
+package com.testleaf.parser;
+
+import io.swagger.v3.oas.models.Components;
+import io.swagger.v3.oas.models.media.Content;
+import io.swagger.v3.oas.models.media.Schema;
+import io.swagger.v3.oas.models.parameters.Parameter;
+import io.swagger.v3.oas.models.parameters.RequestBody;
+import io.swagger.v3.oas.models.responses.ApiResponse;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lazy $ref resolution over an unresolved OpenAPI model. Nothing is inlined: each
+ * component is looked up on first access and every derived view (target schema,
+ * referenced-schema closure, prompt signature, example) is memoized once per spec.
+ * Circular references are detected instead of being expanded.
+ */
+public class SchemaResolver {
+
+    private static final String SCHEMAS = "#/components/schemas/";
+
+    // Nesting depth for inline (non-$ref) object schemas in signatures and examples
+    private static final int MAX_INLINE_DEPTH = 4;
+
+    // $ref hops followed when building an example; deeper chains are cut off like cycles
+    private static final int MAX_EXAMPLE_REF_DEPTH = 8;
+
+    // Schemas described in one prompt; the rest are only counted
+    public static final int MAX_PROMPT_SCHEMAS = 100;
+
+    private final Map<String, Schema<?>> schemas;
+    private final Map<String, Parameter> parameters;
+    private final Map<String, RequestBody> requestBodies;
+    private final Map<String, ApiResponse> responses;
+
+    private final Map<String, Schema<?>> resolved = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> directRefs = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> closures = new ConcurrentHashMap<>();
+    private final Map<String, String> signatures = new ConcurrentHashMap<>();
+    private final Map<String, Object> examples = new ConcurrentHashMap<>();
+
+    public SchemaResolver(Components components) {
+        this.schemas = components == null || components.getSchemas() == null
+                ? Collections.emptyMap() : typed(components.getSchemas());
+        this.parameters = components == null || components.getParameters() == null
+                ? Collections.emptyMap() : components.getParameters();
+        this.requestBodies = components == null || components.getRequestBodies() == null
+                ? Collections.emptyMap() : components.getRequestBodies();
+        this.responses = components == null || components.getResponses() == null
+                ? Collections.emptyMap() : components.getResponses();
+    }
+
+    public int schemaCount() {
+        return schemas.size();
+    }
+
+    /**
+     * Follows a $ref chain to the target schema. Non-ref schemas are returned as is;
+     * unknown or external refs resolve to null.
+     *
+     * @throws IllegalStateException if the chain loops back on itself (A -> B -> A)
+     */
+    public Schema<?> resolve(Schema<?> schema) {
+        if (schema == null || schema.get$ref() == null) {
+            return schema;
+        }
+        return schema(schema.get$ref());
+    }
+
+    /**
+     * Component schema by name or by "#/components/schemas/Name" ref.
+     */
+    public Schema<?> schema(String nameOrRef) {
+        String name = schemaName(nameOrRef);
+        if (name == null) {
+            return null;
+        }
+        Schema<?> cached = resolved.get(name);
+        if (cached != null) {
+            return cached;
+        }
+
+        List<String> chain = new ArrayList<>(List.of(name));
+        Schema<?> current = schemas.get(name);
+        while (current != null && current.get$ref() != null) {
+            String next = schemaName(current.get$ref());
+            if (next == null) {
+                return null;
+            }
+            boolean loop = chain.contains(next);
+            chain.add(next);
+            if (loop) {
+                throw new IllegalStateException("Circular $ref chain: " + String.join(" -> ", chain));
+            }
+            Schema<?> known = resolved.get(next);
+            if (known != null) {
+                current = known;
+                break;
+            }
+            current = schemas.get(next);
+        }
+        if (current == null) {
+            return null;
+        }
+        for (String link : chain) {
+            resolved.putIfAbsent(link, current);
+        }
+        return current;
+    }
+
+    public Parameter resolveParameter(Parameter parameter) {
+        Set<String> seen = new HashSet<>();
+        while (parameter != null && parameter.get$ref() != null && seen.add(parameter.get$ref())) {
+            parameter = parameters.get(ApiOperation.refName(parameter.get$ref()));
+        }
+        return parameter;
+    }
+
+    public RequestBody resolveRequestBody(RequestBody body) {
+        Set<String> seen = new HashSet<>();
+        while (body != null && body.get$ref() != null && seen.add(body.get$ref())) {
+            body = requestBodies.get(ApiOperation.refName(body.get$ref()));
+        }
+        return body;
+    }
+
+    public ApiResponse resolveResponse(ApiResponse response) {
+        Set<String> seen = new HashSet<>();
+        while (response != null && response.get$ref() != null && seen.add(response.get$ref())) {
+            response = responses.get(ApiOperation.refName(response.get$ref()));
+        }
+        return response;
+    }
+
+    /**
+     * Names of all component schemas reachable from the given ones (inclusive), in discovery order.
+     * Cycles are visited once.
+     */
+    public Set<String> referencedSchemas(Collection<String> names) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String name : names) {
+            result.addAll(closure(name));
+        }
+        return result;
+    }
+
+    private Set<String> closure(String name) {
+        Set<String> cached = closures.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        Set<String> visited = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(name);
+        while (!pending.isEmpty()) {
+            String current = pending.poll();
+            if (!schemas.containsKey(current) || !visited.add(current)) {
+                continue;
+            }
+            Set<String> known = closures.get(current);
+            if (known != null) {
+                visited.addAll(known);
+                continue;
+            }
+            pending.addAll(directRefs(current));
+        }
+        Set<String> result = Collections.unmodifiableSet(visited);
+        closures.putIfAbsent(name, result);
+        return result;
+    }
+
+    private Set<String> directRefs(String name) {
+        Set<String> cached = directRefs.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        Set<String> refs = new LinkedHashSet<>();
+        collectRefs(schemas.get(name), refs);
+        refs = Collections.unmodifiableSet(refs);
+        directRefs.putIfAbsent(name, refs);
+        return refs;
+    }
+
+    /**
+     * Collects the component schema names a schema points at directly, without following them.
+     */
+    public static void collectRefs(Schema<?> schema, Set<String> out) {
+        collectRefs(schema, out, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    public static void collectRefs(Content content, Set<String> out) {
+        if (content != null) {
+            content.values().forEach(mediaType -> {
+                if (mediaType != null) {
+                    collectRefs(mediaType.getSchema(), out);
+                }
+            });
+        }
+    }
+
+    private static void collectRefs(Schema<?> schema, Set<String> out, Set<Schema<?>> seen) {
+        if (schema == null || !seen.add(schema)) {
+            return;
+        }
+        if (schema.get$ref() != null) {
+            String name = schemaName(schema.get$ref());
+            if (name != null) {
+                out.add(name);
+            }
+            return;
+        }
+        if (schema.getProperties() != null) {
+            schema.getProperties().values().forEach(p -> collectRefs(p, out, seen));
+        }
+        collectRefs(schema.getItems(), out, seen);
+        if (schema.getAdditionalProperties() instanceof Schema) {
+            collectRefs((Schema<?>) schema.getAdditionalProperties(), out, seen);
+        }
+        for (List<Schema<?>> composed : composedLists(schema)) {
+            composed.forEach(s -> collectRefs(s, out, seen));
+        }
+    }
+
+    /**
+     * One-line structural signature of a component schema for prompts, e.g.
+     * "Pet: object {id*: integer/int64, name*: string, owner: Owner}". Referenced
+     * schemas appear by name only, so shared schemas are described exactly once.
+     */
+    public String signature(String name) {
+        String cached = signatures.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        Schema<?> schema = schemas.get(name);
+        String signature = name + ": " + (schema == null ? "unknown" : shape(schema, 0));
+        signatures.putIfAbsent(name, signature);
+        return signature;
+    }
+
+    /**
+     * Signatures of the given schemas and everything they reference, one per line,
+     * nearest first and capped at {@value #MAX_PROMPT_SCHEMAS} schemas.
+     */
+    public String describeSchemas(Collection<String> names) {
+        StringBuilder sb = new StringBuilder();
+        Set<String> all = referencedSchemas(names);
+        int written = 0;
+        for (String name : all) {
+            if (written++ == MAX_PROMPT_SCHEMAS) {
+                sb.append("(+").append(all.size() - MAX_PROMPT_SCHEMAS).append(" more referenced schemas)\n");
+                break;
+            }
+            sb.append(signature(name)).append("\n");
+        }
+        return sb.toString();
+    }
+
+    private String shape(Schema<?> schema, int depth) {
+        if (schema.get$ref() != null) {
+            return ApiOperation.refName(schema.get$ref());
+        }
+        List<List<Schema<?>>> composed = composedLists(schema);
+        if (!composed.isEmpty()) {
+            boolean allOf = schema.getAllOf() != null;
+            String kind = allOf ? "allOf" : schema.getOneOf() != null ? "oneOf" : "anyOf";
+            List<String> parts = new ArrayList<>();
+            composed.get(0).forEach(s -> parts.add(shape(s, depth + 1)));
+            return kind + "(" + String.join(allOf ? " & " : " | ", parts) + ")";
+        }
+        if (schema.getItems() != null) {
+            return "array<" + shape(schema.getItems(), depth + 1) + ">";
+        }
+        if (schema.getEnum() != null && !schema.getEnum().isEmpty()) {
+            List<String> values = new ArrayList<>();
+            schema.getEnum().forEach(v -> values.add(String.valueOf(v)));
+            return "enum[" + String.join("|", values) + "]";
+        }
+        if (schema.getProperties() != null && !schema.getProperties().isEmpty()) {
+            if (depth >= MAX_INLINE_DEPTH) {
+                return "object{...}";
+            }
+            List<String> required = schema.getRequired() == null ? Collections.emptyList() : schema.getRequired();
+            List<String> fields = new ArrayList<>();
+            schema.getProperties().forEach((field, value) ->
+                    fields.add(field + (required.contains(field) ? "*" : "") + ": " + shape(value, depth + 1)));
+            return "object {" + String.join(", ", fields) + "}";
+        }
+        return ApiOperation.describe(schema);
+    }
+
+    /**
+     * A sample value for a component schema (Maps/Lists/scalars, ready for Jackson).
+     * Recursive references (and chains deeper than {@value #MAX_EXAMPLE_REF_DEPTH}) are cut off
+     * with null. Only cut-free examples are memoized,
+     * so a schema's example never depends on where it was first requested from.
+     */
+    public Object example(String name) {
+        Object cached = examples.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        boolean[] truncated = new boolean[1];
+        Object example = example(schemas.get(name), new ArrayDeque<>(List.of(name)), truncated, 0);
+        if (example != null && !truncated[0]) {
+            examples.putIfAbsent(name, example);
+        }
+        return example;
+    }
+
+    private Object example(Schema<?> schema, Deque<String> stack, boolean[] truncated, int depth) {
+        if (schema == null) {
+            return null;
+        }
+        if (schema.get$ref() != null) {
+            String name = schemaName(schema.get$ref());
+            if (name == null) {
+                return null;
+            }
+            if (stack.contains(name) || stack.size() >= MAX_EXAMPLE_REF_DEPTH) {
+                truncated[0] = true;
+                return null;
+            }
+            Object cached = examples.get(name);
+            if (cached != null) {
+                return cached;
+            }
+            stack.push(name);
+            boolean[] inner = new boolean[1];
+            Object value = example(schemas.get(name), stack, inner, 0);
+            stack.pop();
+            if (inner[0]) {
+                truncated[0] = true;
+            } else if (value != null) {
+                examples.putIfAbsent(name, value);
+            }
+            return value;
+        }
+        if (schema.getExample() != null) {
+            return schema.getExample();
+        }
+        if (schema.getEnum() != null && !schema.getEnum().isEmpty()) {
+            return schema.getEnum().get(0);
+        }
+        List<List<Schema<?>>> composed = composedLists(schema);
+        if (!composed.isEmpty() && !composed.get(0).isEmpty()) {
+            if (schema.getAllOf() == null) {
+                return example(composed.get(0).get(0), stack, truncated, depth);
+            }
+            Map<String, Object> merged = new LinkedHashMap<>();
+            for (Schema<?> part : composed.get(0)) {
+                Object value = example(part, stack, truncated, depth);
+                if (value instanceof Map) {
+                    ((Map<?, ?>) value).forEach((k, v) -> merged.put(String.valueOf(k), v));
+                }
+            }
+            return merged;
+        }
+        if (schema.getItems() != null) {
+            Object item = example(schema.getItems(), stack, truncated, depth + 1);
+            return item == null ? List.of() : List.of(item);
+        }
+        if (schema.getProperties() != null) {
+            if (depth >= MAX_INLINE_DEPTH) {
+                truncated[0] = true;
+                return Map.of();
+            }
+            Map<String, Object> object = new LinkedHashMap<>();
+            schema.getProperties().forEach((field, value) ->
+                    object.put(field, example(value, stack, truncated, depth + 1)));
+            return object;
+        }
+        String type = schema.getType() != null ? schema.getType()
+                : schema.getTypes() != null && !schema.getTypes().isEmpty() ? schema.getTypes().iterator().next()
+                : "object";
+        switch (type) {
+            case "integer":
+                return 0;
+            case "number":
+                return 0.0;
+            case "boolean":
+                return true;
+            case "string":
+                return sampleString(schema.getFormat());
+            default:
+                return Map.of();
+        }
+    }
+
+    private static String sampleString(String format) {
+        if (format == null) {
+            return "string";
+        }
+        switch (format) {
+            case "date":
+                return "2024-01-01";
+            case "date-time":
+                return "2024-01-01T00:00:00Z";
+            case "uuid":
+                return "00000000-0000-0000-0000-000000000000";
+            case "email":
+                return "user@example.com";
+            case "uri":
+                return "https://example.com";
+            default:
+                return "string";
+        }
+    }
+
+    private static List<List<Schema<?>>> composedLists(Schema<?> schema) {
+        if (schema.getAllOf() != null) {
+            return List.of(typed(schema.getAllOf()));
+        }
+        if (schema.getOneOf() != null) {
+            return List.of(typed(schema.getOneOf()));
+        }
+        if (schema.getAnyOf() != null) {
+            return List.of(typed(schema.getAnyOf()));
+        }
+        return Collections.emptyList();
+    }
+
+    // swagger-models declares its schema collections with the raw Schema type; every element is a Schema<?>
+    @SuppressWarnings("unchecked")
+    private static List<Schema<?>> typed(List<?> schemas) {
+        return (List<Schema<?>>) schemas;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Schema<?>> typed(Map<String, ?> schemas) {
+        return (Map<String, Schema<?>>) schemas;
+    }
+
+    /**
+     * Component name for a local schema ref or plain name; null for external refs.
+     */
+    static String schemaName(String nameOrRef) {
+        if (nameOrRef == null) {
+            return null;
+        }
+        if (nameOrRef.startsWith(SCHEMAS)) {
+            return nameOrRef.substring(SCHEMAS.length());
+        }
+        return nameOrRef.contains("/") || nameOrRef.contains("#") ? null : nameOrRef;
+    }
+}
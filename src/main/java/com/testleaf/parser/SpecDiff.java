@@ -0,0 +1,166 @@
+package com.testleaf.parser;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Structural, per-operation diff between two versions of a spec. Operations are matched by
+ * key ("GET /pets/{petId}"); parameters, request bodies, responses and every component
+ * schema an operation reaches are compared. Schema comparisons use the memoized signatures
+ * from each spec's SchemaResolver, so shared schemas are only rendered once per side.
+ */
+public class SpecDiff {
+
+    private final List<String> added;
+    private final List<String> removed;
+    private final List<OperationChange> changed;
+    private final int unchanged;
+
+    public SpecDiff(List<String> added, List<String> removed, List<OperationChange> changed, int unchanged) {
+        this.added = added;
+        this.removed = removed;
+        this.changed = changed;
+        this.unchanged = unchanged;
+    }
+
+    public static SpecDiff compare(ParsedSpec base, ParsedSpec target) {
+        OperationCatalog baseCatalog = base.getCatalog();
+        List<String> added = new ArrayList<>();
+        List<OperationChange> changed = new ArrayList<>();
+        int unchanged = 0;
+
+        for (ApiOperation op : target.getCatalog().getOperations()) {
+            ApiOperation previous = baseCatalog.find(op.getKey());
+            if (previous == null) {
+                added.add(op.getKey());
+                continue;
+            }
+            List<String> changes = compare(previous, op, base.getSchemaResolver(), target.getSchemaResolver());
+            if (changes.isEmpty()) {
+                unchanged++;
+            } else {
+                changed.add(new OperationChange(op.getKey(), changes));
+            }
+        }
+
+        List<String> removed = new ArrayList<>();
+        for (ApiOperation op : baseCatalog.getOperations()) {
+            if (target.getCatalog().find(op.getKey()) == null) {
+                removed.add(op.getKey());
+            }
+        }
+        return new SpecDiff(added, removed, changed, unchanged);
+    }
+
+    private static List<String> compare(ApiOperation before, ApiOperation after,
+                                        SchemaResolver beforeSchemas, SchemaResolver afterSchemas) {
+        List<String> changes = new ArrayList<>();
+
+        Map<String, ApiOperation.Parameter> beforeParams = parametersByName(before);
+        Map<String, ApiOperation.Parameter> afterParams = parametersByName(after);
+        afterParams.forEach((name, p) -> {
+            ApiOperation.Parameter old = beforeParams.get(name);
+            if (old == null) {
+                changes.add("parameter " + name + " added");
+            } else {
+                if (old.isRequired() != p.isRequired()) {
+                    changes.add("parameter " + name + " required: " + old.isRequired() + " -> " + p.isRequired());
+                }
+                if (!Objects.equals(old.getSchema(), p.getSchema())) {
+                    changes.add("parameter " + name + " type: " + old.getSchema() + " -> " + p.getSchema());
+                }
+            }
+        });
+        beforeParams.keySet().stream()
+                .filter(name -> !afterParams.containsKey(name))
+                .forEach(name -> changes.add("parameter " + name + " removed"));
+
+        ApiOperation.RequestBody beforeBody = before.getRequestBody();
+        ApiOperation.RequestBody afterBody = after.getRequestBody();
+        if (beforeBody == null && afterBody != null) {
+            changes.add("request body added");
+        } else if (beforeBody != null && afterBody == null) {
+            changes.add("request body removed");
+        } else if (beforeBody != null) {
+            if (!Objects.equals(beforeBody.getSchema(), afterBody.getSchema())) {
+                changes.add("request body schema: " + beforeBody.getSchema() + " -> " + afterBody.getSchema());
+            }
+            if (beforeBody.isRequired() != afterBody.isRequired()) {
+                changes.add("request body required: " + beforeBody.isRequired() + " -> " + afterBody.isRequired());
+            }
+            if (!Objects.equals(beforeBody.getContentTypes(), afterBody.getContentTypes())) {
+                changes.add("request body content types: " + beforeBody.getContentTypes()
+                        + " -> " + afterBody.getContentTypes());
+            }
+        }
+
+        Map<String, ApiOperation.Response> beforeResponses = responsesByCode(before);
+        Map<String, ApiOperation.Response> afterResponses = responsesByCode(after);
+        afterResponses.forEach((code, r) -> {
+            ApiOperation.Response old = beforeResponses.get(code);
+            if (old == null) {
+                changes.add("response " + code + " added");
+            } else if (!Objects.equals(old.getSchema(), r.getSchema())) {
+                changes.add("response " + code + " schema: " + old.getSchema() + " -> " + r.getSchema());
+            }
+        });
+        beforeResponses.keySet().stream()
+                .filter(code -> !afterResponses.containsKey(code))
+                .forEach(code -> changes.add("response " + code + " removed"));
+
+        // Deep schema changes: anything reachable from the operation whose shape differs
+        Set<String> reachable = new LinkedHashSet<>(afterSchemas.referencedSchemas(after.getSchemaRefs()));
+        Set<String> previouslyReachable = beforeSchemas.referencedSchemas(before.getSchemaRefs());
+        for (String name : reachable) {
+            if (previouslyReachable.contains(name)
+                    && !beforeSchemas.signature(name).equals(afterSchemas.signature(name))) {
+                changes.add("schema " + name + " changed");
+            }
+        }
+        return changes;
+    }
+
+    private static Map<String, ApiOperation.Parameter> parametersByName(ApiOperation op) {
+        Map<String, ApiOperation.Parameter> params = new LinkedHashMap<>();
+        op.getParameters().forEach(p -> params.put(p.getIn() + ":" + p.getName(), p));
+        return params;
+    }
+
+    private static Map<String, ApiOperation.Response> responsesByCode(ApiOperation op) {
+        Map<String, ApiOperation.Response> responses = new LinkedHashMap<>();
+        op.getResponses().forEach(r -> responses.put(r.getCode(), r));
+        return responses;
+    }
+
+    /**
+     * Keys of the operations that need (re)generated tests: added plus changed.
+     */
+    public List<String> delta() {
+        List<String> keys = new ArrayList<>(added);
+        changed.forEach(c -> keys.add(c.getOperation()));
+        return keys;
+    }
+
+    public List<String> getAdded() { return added; }
+    public List<String> getRemoved() { return removed; }
+    public List<OperationChange> getChanged() { return changed; }
+    public int getUnchanged() { return unchanged; }
+
+    public static class OperationChange {
+        private final String operation;
+        private final List<String> changes;
+
+        public OperationChange(String operation, List<String> changes) {
+            this.operation = operation;
+            this.changes = changes;
+        }
+
+        public String getOperation() { return operation; }
+        public List<String> getChanges() { return changes; }
+    }
+}
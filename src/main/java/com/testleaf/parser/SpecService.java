@@ -0,0 +1,34 @@
+package com.testleaf.parser;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses uploaded specs through the content-addressed cache.
+ */
+@Service
+@RequiredArgsConstructor
+public class SpecService {
+
+    private final SwaggerParser swaggerParser = new SwaggerParser();
+    private final ParsedSpecCache parsedSpecCache;
+
+    /**
+     * Returns the parsed spec for the content, parsing it only on a cache miss.
+     * Returns null if the content is not a valid specification.
+     */
+    public ParsedSpec ingest(ByteBuffer content) {
+        String specId = ParsedSpecCache.key(content);
+        ParsedSpec cached = parsedSpecCache.get(specId);
+        if (cached != null) {
+            return cached;
+        }
+        ParsedSpec parsed = swaggerParser.parseSpec(specId, content);
+        if (parsed != null) {
+            parsedSpecCache.put(specId, parsed);
+        }
+        return parsed;
+    }
+}
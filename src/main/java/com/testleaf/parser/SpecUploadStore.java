@@ -0,0 +1,235 @@
+package com.testleaf.parser;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Hands uploaded specs to the parser as a ByteBuffer. Uploads up to the spill threshold
+ * stay on the heap; larger ones (when spilling is enabled) are moved into a managed spill
+ * directory with MultipartFile.transferTo and memory-mapped, then deleted once parsed.
+ * Zip archives are expanded into one upload per spec entry, entry by entry, within
+ * spec.upload.max-archive-size uncompressed bytes per archive.
+ */
+@Component
+public class SpecUploadStore {
+
+    @Value("${spec.upload.spill-enabled:true}")
+    private boolean spillEnabled;
+
+    @Value("${spec.upload.spill-threshold:16MB}")
+    private DataSize spillThreshold;
+
+    @Value("${spec.upload.spill-dir:${java.io.tmpdir}/swagger-ra-web/uploads}")
+    private String spillDir;
+
+    @Value("${spec.upload.max-zip-entries:500}")
+    private int maxZipEntries;
+
+    @Value("${spec.upload.max-entry-size:64MB}")
+    private DataSize maxEntrySize;
+
+    @Value("${spec.upload.max-archive-size:512MB}")
+    private DataSize maxArchiveSize;
+
+    private Path spillPath;
+
+    @PostConstruct
+    void init() throws IOException {
+        // Absolute, so Part.write does not resolve it against the multipart location
+        spillPath = Paths.get(spillDir).toAbsolutePath();
+        Files.createDirectories(spillPath);
+        // Leftovers from a previous crash are never going to be read again
+        deleteSpillFiles();
+    }
+
+    @PreDestroy
+    void cleanUp() throws IOException {
+        deleteSpillFiles();
+    }
+
+    // Only the store's own files: the spill dir is configurable and may be shared
+    private void deleteSpillFiles() throws IOException {
+        try (DirectoryStream<Path> spillFiles = Files.newDirectoryStream(spillPath, "spec-*.upload")) {
+            for (Path spillFile : spillFiles) {
+                Files.deleteIfExists(spillFile);
+            }
+        }
+    }
+
+    /**
+     * Opens the uploaded content. The returned upload must be closed to release any spill file.
+     */
+    public SpecUpload open(MultipartFile file) throws IOException {
+        if (!spillEnabled || file.getSize() <= spillThreshold.toBytes()) {
+            return new SpecUpload(file.getOriginalFilename(), ByteBuffer.wrap(file.getBytes()), null);
+        }
+
+        Path spillFile = Files.createTempFile(spillPath, "spec-", ".upload");
+        try {
+            // The File overload goes through Part.write, which renames a part the container
+            // already buffered on disk instead of copying it (transferTo(Path) always copies)
+            Files.delete(spillFile);
+            file.transferTo(spillFile.toFile());
+            return map(file.getOriginalFilename(), spillFile);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spillFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Opens every spec in the upload, the file itself or each .json/.yaml/.yml entry when it
+     * is a zip archive, and hands each one to the consumer as soon as it is read, so the
+     * caller can parse an entry (and release it) while the next is still being read. The
+     * consumer takes ownership and must close every upload it receives. Entries already
+     * handed over stay with the consumer when a later one fails.
+     */
+    public void openEach(MultipartFile file, Consumer<SpecUpload> consumer) throws IOException {
+        String name = file.getOriginalFilename();
+        if (name == null || !name.toLowerCase(Locale.ROOT).endsWith(".zip")) {
+            consumer.accept(open(file));
+            return;
+        }
+
+        int entries = 0;
+        long remaining = maxArchiveSize.toBytes();
+        try (ZipInputStream zip = new ZipInputStream(file.getInputStream())) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory() || !isSpecFile(entry.getName())) {
+                    continue;
+                }
+                if (entries++ == maxZipEntries) {
+                    throw new IOException("Archive " + name + " has more than " + maxZipEntries + " specs");
+                }
+                SpecUpload upload = readEntry(name + "!/" + entry.getName(), zip, remaining);
+                remaining -= upload.size();
+                consumer.accept(upload);
+            }
+        }
+    }
+
+    // Reads one archive entry, failing once it exceeds the entry limit or what is left of the
+    // archive's (the sizes in the zip headers are not to be trusted, so the bytes are counted)
+    private SpecUpload readEntry(String name, InputStream in, long archiveRemaining) throws IOException {
+        long limit = Math.min(maxEntrySize.toBytes(), archiveRemaining);
+        long inMemoryLimit = spillEnabled ? Math.min(spillThreshold.toBytes(), limit) : limit;
+        byte[] head = in.readNBytes((int) Math.min(inMemoryLimit + 1, Integer.MAX_VALUE - 8));
+        if (head.length > limit) {
+            throw tooLarge(name, archiveRemaining);
+        }
+        if (head.length <= inMemoryLimit) {
+            return new SpecUpload(name, ByteBuffer.wrap(head), null);
+        }
+
+        // Larger than the threshold: stream the rest straight into a spill file
+        Path spillFile = Files.createTempFile(spillPath, "spec-", ".upload");
+        try {
+            try (OutputStream out = Files.newOutputStream(spillFile)) {
+                out.write(head);
+                long copied = head.length;
+                byte[] buffer = new byte[64 * 1024];
+                int n;
+                while ((n = in.read(buffer)) != -1) {
+                    copied += n;
+                    if (copied > limit) {
+                        throw tooLarge(name, archiveRemaining);
+                    }
+                    out.write(buffer, 0, n);
+                }
+            }
+            return map(name, spillFile);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(spillFile);
+            throw e;
+        }
+    }
+
+    private IOException tooLarge(String name, long archiveRemaining) {
+        if (archiveRemaining < maxEntrySize.toBytes()) {
+            return new IOException(name + " takes the archive past " + maxArchiveSize + " uncompressed");
+        }
+        return new IOException(name + " exceeds " + maxEntrySize);
+    }
+
+    private SpecUpload map(String name, Path spillFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.READ)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new SpecUpload(name, mapped, spillFile);
+        }
+    }
+
+    private static boolean isSpecFile(String entryName) {
+        String lower = entryName.toLowerCase(Locale.ROOT);
+        return lower.endsWith(".json") || lower.endsWith(".yaml") || lower.endsWith(".yml");
+    }
+
+    /**
+     * Uploaded spec content, either on the heap or memory-mapped from a spill file.
+     */
+    public static class SpecUpload implements AutoCloseable {
+        private final String name;
+        private final ByteBuffer content;
+        private final Path spillFile;
+
+        SpecUpload(String name, ByteBuffer content, Path spillFile) {
+            this.name = name;
+            this.content = content;
+            this.spillFile = spillFile;
+        }
+
+        /**
+         * Original file name; "archive.zip!/entry.yaml" for archive entries.
+         */
+        public String name() {
+            return name;
+        }
+
+        /**
+         * A read-only view of the content; each call returns an independent position.
+         */
+        public ByteBuffer content() {
+            return content.asReadOnlyBuffer();
+        }
+
+        public long size() {
+            return content.capacity();
+        }
+
+        public boolean isSpilled() {
+            return spillFile != null;
+        }
+
+        @Override
+        public void close() {
+            if (spillFile == null) {
+                return;
+            }
+            try {
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                // Some platforms refuse to delete a mapped file; spill files are purged on restart
+                spillFile.toFile().deleteOnExit();
+            }
+        }
+    }
+}
@@ -1,40 +1,55 @@
 package com.testleaf.parser;
 
-import io.swagger.parser.OpenAPIParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.fasterxml.jackson.dataformat.yaml.YAMLParser;
+import io.swagger.parser.util.SwaggerDeserializer;
+import io.swagger.v3.core.util.Json;
 import io.swagger.v3.oas.models.OpenAPI;
+import io.swagger.v3.parser.OpenAPIV3Parser;
+import io.swagger.v3.parser.converter.SwaggerConverter;
 import io.swagger.v3.parser.core.models.SwaggerParseResult;
-import org.yaml.snakeyaml.Yaml;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import org.yaml.snakeyaml.LoaderOptions;
 
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Map;
 
 public class SwaggerParser {
 
-    public String parseSwagger(String swaggerFilePath) {
-        try {
-            // Read file content
-            Path path = Paths.get(swaggerFilePath);
-            String fileContent = new String(Files.readAllBytes(path));
+    // Bytes inspected to tell JSON from YAML (BOM + leading whitespace)
+    private static final int SNIFF_LIMIT = 8192;
 
-            // Check if the content is YAML (not JSON)
-            if (!fileContent.trim().startsWith("{")) {
-                fileContent = convertYamlToJson(fileContent);
-            }
+    // Large vendor specs easily exceed SnakeYAML's default 3 MB document limit
+    private static final int YAML_CODE_POINT_LIMIT = Integer.MAX_VALUE;
+
+    private static final ObjectMapper JSON_MAPPER = Json.mapper();
+    private static final YAMLFactory YAML_FACTORY = createYamlFactory();
 
-            // Parse using swagger-parser
-            SwaggerParseResult result = new OpenAPIParser().readContents(fileContent, null, null);
-            OpenAPI openAPI = result.getOpenAPI();
+    public String parseSwagger(String swaggerFilePath) {
+        try (InputStream in = Files.newInputStream(Paths.get(swaggerFilePath))) {
+            return parseSwagger(in);
+        } catch (Exception e) {
+            System.err.println("❌ Error while parsing Swagger file: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
 
+    /**
+     * Parse a Swagger/OpenAPI document straight from a stream and return the API details.
+     */
+    public String parseSwagger(InputStream in) {
+        try {
+            OpenAPI openAPI = readOpenAPI(in);
             if (openAPI == null) {
-                System.err.println("⚠️ Failed to parse Swagger/OpenAPI file: " + result.getMessages());
                 return null;
             }
-
             return extractApiDetails(openAPI);
-
         } catch (Exception e) {
             System.err.println("❌ Error while parsing Swagger file: " + e.getMessage());
             e.printStackTrace();
@@ -43,33 +58,141 @@ public class SwaggerParser {
     }
 
     /**
-     * Convert YAML format to JSON format using SnakeYAML & Jackson
+     * Parse a Swagger/OpenAPI document held in memory (heap or memory-mapped).
+     */
+    public String parseSwagger(ByteBuffer content) {
+        return parseSwagger(new ByteBufferInputStream(content));
+    }
+
+    /**
+     * Parse a Swagger/OpenAPI document held in memory into an indexed operation catalog,
+     * with a lazy $ref resolver over its components. Returns null if the document is not
+     * a valid specification.
      */
-    private String convertYamlToJson(String yamlContent) {
+    public ParsedSpec parseSpec(String specId, ByteBuffer content) {
         try {
-            Yaml yaml = new Yaml();
-            Map<String, Object> yamlMap = yaml.load(yamlContent);
-            ObjectMapper objectMapper = new ObjectMapper();
-            return objectMapper.writeValueAsString(yamlMap);
+            long size = content.remaining();
+            OpenAPI openAPI = readOpenAPI(new ByteBufferInputStream(content));
+            if (openAPI == null) {
+                return null;
+            }
+            SchemaResolver resolver = new SchemaResolver(openAPI.getComponents());
+            return new ParsedSpec(specId, OperationCatalog.from(openAPI, resolver), resolver, size);
         } catch (Exception e) {
-            System.err.println("❌ Failed to convert YAML to JSON: " + e.getMessage());
+            System.err.println("❌ Error while parsing Swagger file: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * Read the OpenAPI model in a single pass: the document is streamed into a
+     * Jackson tree (JSON or YAML, detected from the first bytes) and that tree is
+     * handed to swagger-parser directly, without intermediate String copies.
+     * YAML anchors, aliases and merge keys are resolved while the tree is built.
+     */
+    public OpenAPI readOpenAPI(InputStream in) throws IOException {
+        BufferedInputStream buffered = in instanceof BufferedInputStream
+                ? (BufferedInputStream) in
+                : new BufferedInputStream(in, SNIFF_LIMIT);
+
+        JsonNode root;
+        if (isJson(buffered)) {
+            root = JSON_MAPPER.readTree(buffered);
+        } else {
+            try (YAMLParser parser = YAML_FACTORY.createParser(buffered)) {
+                root = YamlTreeReader.read(parser);
+            }
+        }
+        if (root == null || !root.isObject()) {
+            System.err.println("⚠️ Failed to parse Swagger/OpenAPI file: document is empty or not an object");
+            return null;
+        }
+
+        SwaggerParseResult result;
+        if (root.has("swagger")) {
+            // Swagger 2.0: deserialize the same tree and convert it to OpenAPI 3
+            result = new SwaggerConverter().convert(new SwaggerDeserializer().deserialize(root));
+        } else {
+            result = new OpenAPIV3Parser().parseJsonNode(null, root);
+        }
+
+        OpenAPI openAPI = result == null ? null : result.getOpenAPI();
+        if (openAPI == null) {
+            System.err.println("⚠️ Failed to parse Swagger/OpenAPI file: "
+                    + (result == null ? "no result" : result.getMessages()));
             return null;
         }
+        return openAPI;
+    }
+
+    /**
+     * Peek at the first significant byte: a JSON document must start with '{'.
+     * Skips a UTF-8 BOM and whitespace; the stream is reset afterwards.
+     */
+    private boolean isJson(BufferedInputStream in) throws IOException {
+        in.mark(SNIFF_LIMIT);
+        try {
+            int b;
+            int read = 0;
+            while ((b = in.read()) != -1 && read++ < SNIFF_LIMIT) {
+                if (b == 0xEF || b == 0xBB || b == 0xBF || Character.isWhitespace(b)) {
+                    continue;
+                }
+                return b == '{';
+            }
+            return false;
+        } finally {
+            in.reset();
+        }
+    }
+
+    private static YAMLFactory createYamlFactory() {
+        LoaderOptions loaderOptions = new LoaderOptions();
+        loaderOptions.setCodePointLimit(YAML_CODE_POINT_LIMIT);
+        return YAMLFactory.builder()
+                .loaderOptions(loaderOptions)
+                .build();
     }
 
     /**
      * Extract API details from the OpenAPI model.
      */
     private String extractApiDetails(OpenAPI openAPI) {
-        StringBuilder sb = new StringBuilder();
-        openAPI.getPaths().forEach((path, pathItem) -> {
-            pathItem.readOperationsMap().forEach((method, operation) -> {
-                sb.append("Path: ").append(path)
-                        .append(", Method: ").append(method)
-                        .append(", Summary: ").append(operation.getSummary())
-                        .append("\n");
-            });
-        });
-        return sb.toString();
+        return OperationCatalog.from(openAPI, new SchemaResolver(openAPI.getComponents())).toApiDetails();
+    }
+
+    /**
+     * Minimal InputStream over a ByteBuffer, so mapped spill files are read without copying.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
     }
 }
@@ -0,0 +1,146 @@
+package com.testleaf.parser;
+
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLParser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a Jackson tree from a streaming YAMLParser, resolving what ObjectMapper.readTree
+ * leaves alone: an alias (*name) becomes the node its anchor (&amp;name) was set on, not
+ * the anchor's name as a string, and merge keys (&lt;&lt;: *name) copy the anchored
+ * mapping's entries into the mapping, explicit keys taking precedence. Scalars are typed
+ * by the parser, as with readTree.
+ *
+ * Anchored nodes are shared, not copied, so the tree is to be read, not modified.
+ */
+final class YamlTreeReader {
+
+    private static final String MERGE_KEY = "<<";
+
+    private final YAMLParser parser;
+    private final JsonNodeFactory nodes = JsonNodeFactory.instance;
+    private final Map<String, JsonNode> anchors = new HashMap<>();
+
+    private YamlTreeReader(YAMLParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Reads the first document; null when the input is empty.
+     */
+    static JsonNode read(YAMLParser parser) throws IOException {
+        return parser.nextToken() == null ? null : new YamlTreeReader(parser).value();
+    }
+
+    // The value at the current token, which is consumed up to its end
+    private JsonNode value() throws IOException {
+        if (parser.isCurrentAlias()) {
+            String anchor = parser.getText();
+            JsonNode anchored = anchors.get(anchor);
+            if (anchored == null) {
+                throw new IOException("YAML alias *" + anchor + " refers to an unknown anchor");
+            }
+            return anchored;
+        }
+        String anchor = parser.getObjectId();
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_OBJECT) {
+            ObjectNode object = nodes.objectNode();
+            // Registered before the children are read, so a mapping can refer to itself
+            if (anchor != null) {
+                anchors.put(anchor, object);
+            }
+            readObject(object);
+            return object;
+        } else if (token == JsonToken.START_ARRAY) {
+            ArrayNode array = nodes.arrayNode();
+            if (anchor != null) {
+                anchors.put(anchor, array);
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                array.add(value());
+            }
+            return array;
+        }
+        JsonNode value = scalar(token);
+        if (anchor != null) {
+            anchors.put(anchor, value);
+        }
+        return value;
+    }
+
+    private void readObject(ObjectNode object) throws IOException {
+        List<JsonNode> merges = new ArrayList<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            JsonNode value = value();
+            if (MERGE_KEY.equals(name) && (value.isObject() || value.isArray())) {
+                merges.add(value);
+            } else {
+                object.set(name, value);
+            }
+        }
+        for (JsonNode merge : merges) {
+            if (merge.isObject()) {
+                mergeInto(object, merge);
+            } else {
+                // <<: [*a, *b] -- earlier mappings take precedence
+                for (JsonNode element : merge) {
+                    if (element.isObject()) {
+                        mergeInto(object, element);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void mergeInto(ObjectNode object, JsonNode merged) {
+        Iterator<Map.Entry<String, JsonNode>> fields = merged.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            if (!object.has(field.getKey())) {
+                object.set(field.getKey(), field.getValue());
+            }
+        }
+    }
+
+    private JsonNode scalar(JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_STRING:
+                return nodes.textNode(parser.getText());
+            case VALUE_NUMBER_INT:
+                switch (parser.getNumberType()) {
+                    case INT:
+                        return nodes.numberNode(parser.getIntValue());
+                    case LONG:
+                        return nodes.numberNode(parser.getLongValue());
+                    default:
+                        return nodes.numberNode(parser.getBigIntegerValue());
+                }
+            case VALUE_NUMBER_FLOAT:
+                return nodes.numberNode(parser.getDoubleValue());
+            case VALUE_TRUE:
+                return nodes.booleanNode(true);
+            case VALUE_FALSE:
+                return nodes.booleanNode(false);
+            case VALUE_NULL:
+                return nodes.nullNode();
+            case VALUE_EMBEDDED_OBJECT:
+                // !!binary
+                return nodes.binaryNode(parser.getBinaryValue());
+            default:
+                throw new IOException("Unexpected YAML token " + token);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.testleaf.runner;
+
+import java.util.Map;
+
+/**
+ * Defines classes from the bytes an InMemoryFileManager collected. Anything else, including
+ * TestNG and RestAssured, comes from the parent, so the loaded tests share the application's
+ * copies of those libraries.
+ */
+class ByteArrayClassLoader extends ClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    private final Map<String, byte[]> classes;
+
+    ByteArrayClassLoader(Map<String, byte[]> classes, ClassLoader parent) {
+        super(parent);
+        this.classes = classes;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] bytes = classes.get(name);
+        if (bytes == null) {
+            throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, bytes, 0, bytes.length);
+    }
+}
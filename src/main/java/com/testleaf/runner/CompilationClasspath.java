@@ -0,0 +1,184 @@
+package com.testleaf.runner;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * The classpath generated tests are compiled against: the application's own dependencies
+ * (TestNG, RestAssured, Hamcrest, ...). Resolved once, at startup, and reused by every run.
+ *
+ * From an IDE or mvn spring-boot:run the entries are plain files on java.class.path and the
+ * class loaders' URLs. Inside the Spring Boot fat jar they are nested jars javac cannot read,
+ * so BOOT-INF/lib and BOOT-INF/classes are extracted to tests.run.classpath-cache-dir, in a
+ * directory named after the jar's size and timestamp: a restart with the same jar finds
+ * them already there, and a new build gets a fresh copy.
+ *
+ * Example usage:
+ *  options.add("-classpath");
+ *  options.add(compilationClasspath.get());
+ */
+@Component
+public class CompilationClasspath {
+
+    private static final String BOOT_LIB = "BOOT-INF/lib/";
+    private static final String BOOT_CLASSES = "BOOT-INF/classes/";
+
+    @Value("${tests.run.classpath-cache-dir:${java.io.tmpdir}/swagger-ra-web/classpath}")
+    private String cacheDir = System.getProperty("java.io.tmpdir") + "/swagger-ra-web/classpath";
+
+    private volatile String classpath;
+
+    @PostConstruct
+    void init() {
+        long start = System.nanoTime();
+        int entries = get().split(File.pathSeparator).length;
+        System.out.println("📚 Test compilation classpath resolved: " + entries + " entries in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+    }
+
+    /**
+     * The -classpath value, resolved on first use.
+     */
+    public String get() {
+        String resolved = classpath;
+        if (resolved == null) {
+            synchronized (this) {
+                resolved = classpath;
+                if (resolved == null) {
+                    resolved = String.join(File.pathSeparator, resolve());
+                    classpath = resolved;
+                }
+            }
+        }
+        return resolved;
+    }
+
+    private Set<String> resolve() {
+        Set<String> entries = new LinkedHashSet<>();
+        Set<Path> fatJars = new LinkedHashSet<>();
+
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                add(Paths.get(entry), entries, fatJars);
+            }
+        }
+        for (ClassLoader cl = Thread.currentThread().getContextClassLoader(); cl != null; cl = cl.getParent()) {
+            if (cl instanceof URLClassLoader) {
+                for (URL url : ((URLClassLoader) cl).getURLs()) {
+                    addUrl(url, entries, fatJars);
+                }
+            }
+        }
+
+        for (Path fatJar : fatJars) {
+            try {
+                entries.addAll(extract(fatJar));
+            } catch (IOException e) {
+                System.err.println("⚠️ Could not extract the libraries of " + fatJar + ": " + e.getMessage());
+            }
+        }
+        return entries;
+    }
+
+    private static void addUrl(URL url, Set<String> entries, Set<Path> fatJars) {
+        String spec = url.toString();
+        try {
+            if (spec.startsWith("jar:")) {
+                // jar:file:/app.jar!/BOOT-INF/lib/x.jar!/ -- nested in the fat jar
+                int separator = spec.indexOf("!/");
+                URL outer = new URL(spec.substring("jar:".length(), separator < 0 ? spec.length() : separator));
+                if ("file".equals(outer.getProtocol())) {
+                    fatJars.add(Paths.get(outer.toURI()));
+                }
+            } else if ("file".equals(url.getProtocol())) {
+                add(Paths.get(url.toURI()), entries, fatJars);
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            // Not something javac could read anyway
+        }
+    }
+
+    private static void add(Path path, Set<String> entries, Set<Path> fatJars) {
+        if (Files.isRegularFile(path) && isFatJar(path)) {
+            fatJars.add(path.toAbsolutePath());
+        } else if (Files.exists(path)) {
+            entries.add(path.toAbsolutePath().toString());
+        }
+    }
+
+    private static boolean isFatJar(Path path) {
+        if (!path.toString().endsWith(".jar")) {
+            return false;
+        }
+        try (JarFile jar = new JarFile(path.toFile())) {
+            Manifest manifest = jar.getManifest();
+            return manifest != null && manifest.getMainAttributes().getValue("Spring-Boot-Lib") != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Nested libraries and classes of a Boot jar, unpacked into the cache once per build of the jar
+    private List<String> extract(Path fatJar) throws IOException {
+        String name = fatJar.getFileName().toString();
+        Path target = Paths.get(cacheDir).resolve(name.substring(0, name.length() - ".jar".length())
+                + "-" + Files.size(fatJar) + "-" + Files.getLastModifiedTime(fatJar).toMillis());
+        Path libs = target.resolve("lib");
+        Path classes = target.resolve("classes");
+
+        List<String> entries = new ArrayList<>();
+        entries.add(classes.toString());
+        try (JarFile jar = new JarFile(fatJar.toFile())) {
+            Enumeration<JarEntry> jarEntries = jar.entries();
+            while (jarEntries.hasMoreElements()) {
+                JarEntry entry = jarEntries.nextElement();
+                String entryName = entry.getName();
+                Path file;
+                if (entryName.startsWith(BOOT_LIB) && entryName.endsWith(".jar")) {
+                    file = libs.resolve(entryName.substring(BOOT_LIB.length()));
+                    entries.add(file.toString());
+                } else if (entryName.startsWith(BOOT_CLASSES) && !entry.isDirectory()) {
+                    file = classes.resolve(entryName.substring(BOOT_CLASSES.length())).normalize();
+                    if (!file.startsWith(classes)) {
+                        continue;
+                    }
+                } else {
+                    continue;
+                }
+                if (Files.isRegularFile(file) && Files.size(file) == entry.getSize()) {
+                    continue;
+                }
+                Files.createDirectories(file.getParent());
+                // Written aside and moved, so a concurrent or interrupted start never leaves half a jar
+                Path partial = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".part");
+                try (InputStream in = jar.getInputStream(entry)) {
+                    Files.copy(in, partial, StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(partial);
+                }
+            }
+        }
+        return entries;
+    }
+}
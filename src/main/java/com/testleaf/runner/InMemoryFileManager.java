@@ -0,0 +1,82 @@
+package com.testleaf.runner;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps the class files of one compilation in memory instead of writing them under -d.
+ * Sources are given as strings (source), and the compiled classes are read back with
+ * classBytes, typically through a ByteArrayClassLoader. Everything else (the platform
+ * classes and the classpath) is served by the wrapped file manager.
+ *
+ * Example usage:
+ *  InMemoryFileManager fileManager = new InMemoryFileManager(compiler.getStandardFileManager(null, null, null));
+ *  compiler.getTask(null, fileManager, diagnostics, options, null,
+ *          List.of(InMemoryFileManager.source("MyTest", javaCode))).call();
+ *  ClassLoader loader = new ByteArrayClassLoader(fileManager.classBytes(), parent);
+ */
+class InMemoryFileManager extends ForwardingJavaFileManager<JavaFileManager> {
+
+    private final Map<String, ClassFile> classFiles = new HashMap<>();
+
+    InMemoryFileManager(JavaFileManager fileManager) {
+        super(fileManager);
+    }
+
+    /**
+     * A compilation unit held in a string. The name is the public class name, which javac
+     * checks against the file name.
+     */
+    static JavaFileObject source(String className, String code) {
+        return new SimpleJavaFileObject(URI.create("string:///" + className + JavaFileObject.Kind.SOURCE.extension),
+                JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return code;
+            }
+        };
+    }
+
+    @Override
+    public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind,
+                                               FileObject sibling) {
+        ClassFile classFile = new ClassFile(className, kind);
+        synchronized (classFiles) {
+            classFiles.put(className, classFile);
+        }
+        return classFile;
+    }
+
+    /**
+     * The compiled classes (nested and anonymous ones included) by binary name.
+     */
+    Map<String, byte[]> classBytes() {
+        Map<String, byte[]> bytes = new HashMap<>();
+        synchronized (classFiles) {
+            classFiles.forEach((name, classFile) -> bytes.put(name, classFile.bytes.toByteArray()));
+        }
+        return bytes;
+    }
+
+    private static final class ClassFile extends SimpleJavaFileObject {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ClassFile(String className, Kind kind) {
+            super(URI.create("mem:///" + className.replace('.', '/') + kind.extension), kind);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+    }
+}
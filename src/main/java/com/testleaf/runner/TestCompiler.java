@@ -0,0 +1,229 @@
+package com.testleaf.runner;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Compiles generated test classes in memory with a long-lived javac. Most of a cold compile
+ * is opening and indexing the jars of the classpath, so file managers are kept open between
+ * compilations: each one has the CompilationClasspath set once and keeps its jar indexes.
+ * A file manager is not thread-safe, so one is borrowed per compilation; at most
+ * tests.compile.max-concurrent compilations run at once (0 = one per core) and further
+ * callers wait for a free one. Annotation processing is off, which also saves the scan of
+ * the classpath for processors.
+ *
+ * At startup a warm-up compile on a background thread opens the jars and gets javac itself
+ * JIT-compiled, so the first request does not pay for it.
+ *
+ * Example usage:
+ *  TestCompiler.Result compiled = testCompiler.compile("PetApiTests", javaCode);
+ *  if (compiled.isSuccess()) {
+ *      ClassLoader loader = new ByteArrayClassLoader(compiled.getClasses(), parent);
+ *  }
+ */
+@Component
+public class TestCompiler {
+
+    private static final List<String> OPTIONS = List.of("-proc:none");
+    private static final int WARMUP_COMPILES = 3;
+    private static final String WARMUP_SOURCE = """
+            package automation.tests;
+
+            import io.restassured.RestAssured;
+            import io.restassured.http.ContentType;
+            import org.testng.annotations.Test;
+            import static io.restassured.RestAssured.given;
+            import static org.hamcrest.Matchers.equalTo;
+
+            public class CompilerWarmup {
+                @Test
+                public void warmUp() {
+                    RestAssured.baseURI = "http://localhost";
+                    given().contentType(ContentType.JSON).when().get("/").then().body("id", equalTo(1));
+                }
+            }
+            """;
+
+    private final CompilationClasspath compilationClasspath;
+    private final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    private final Semaphore permits;
+    private final Queue<StandardJavaFileManager> idle = new ConcurrentLinkedQueue<>();
+
+    public TestCompiler(CompilationClasspath compilationClasspath,
+                        @Value("${tests.compile.max-concurrent:0}") int maxConcurrent) {
+        this.compilationClasspath = compilationClasspath;
+        this.permits = new Semaphore(maxConcurrent > 0 ? maxConcurrent : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PostConstruct
+    void warmUp() {
+        if (compiler == null) {
+            System.err.println("⚠️ No Java compiler available; /api/runTests needs a JDK, not a JRE.");
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            long start = System.nanoTime();
+            Result last = null;
+            RuntimeException failure = null;
+            for (int i = 0; i < WARMUP_COMPILES; i++) {
+                try {
+                    last = compile("CompilerWarmup", WARMUP_SOURCE);
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            if (last == null) {
+                System.err.println("⚠️ Test compiler warm-up failed: " + failure);
+            } else if (last.isSuccess()) {
+                System.out.println("🔥 Test compiler warmed up in " + (System.nanoTime() - start) / 1_000_000
+                        + " ms (last compile " + last.getMillis() + " ms)");
+            } else {
+                System.err.println("⚠️ Test compiler warm-up failed: " + last.getError());
+            }
+        }, "test-compiler-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    void close() {
+        StandardJavaFileManager fileManager;
+        while ((fileManager = idle.poll()) != null) {
+            closeQuietly(fileManager);
+        }
+    }
+
+    /**
+     * Compiles one source file; the class name is the public class's, as javac checks it
+     * against the file name. Blocks while all compilers are busy.
+     */
+    public Result compile(String className, String code) {
+        if (compiler == null) {
+            return Result.failed("❌ No Java compiler available. Ensure you run on a JDK, not a JRE.", 0);
+        }
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.failed("❌ Interrupted while waiting for a free compiler.", 0);
+        }
+        long start = System.nanoTime();
+        StandardJavaFileManager fileManager = idle.poll();
+        try {
+            if (fileManager == null) {
+                fileManager = newFileManager();
+            }
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            // Not closed: that would close the pooled file manager it forwards to
+            InMemoryFileManager inMemory = new InMemoryFileManager(fileManager);
+            boolean success = compiler.getTask(null, inMemory, diagnostics, OPTIONS, null,
+                    List.of(InMemoryFileManager.source(className, code))).call();
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            if (!success) {
+                return Result.failed("❌ Compilation failed. Check your generated code for errors." + errors(diagnostics), millis);
+            }
+            return new Result(inMemory.classBytes(), null, millis);
+        } catch (IOException | RuntimeException e) {
+            // javac may have left the file manager in any state; start the next one afresh
+            if (fileManager != null) {
+                closeQuietly(fileManager);
+                fileManager = null;
+            }
+            return Result.failed("❌ Compilation failed: " + e, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            if (fileManager != null) {
+                idle.offer(fileManager);
+            }
+            permits.release();
+        }
+    }
+
+    private StandardJavaFileManager newFileManager() throws IOException {
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, Locale.ROOT, StandardCharsets.UTF_8);
+        List<File> classpath = new ArrayList<>();
+        for (String entry : compilationClasspath.get().split(File.pathSeparator)) {
+            if (!entry.isEmpty()) {
+                classpath.add(new File(entry));
+            }
+        }
+        fileManager.setLocation(StandardLocation.CLASS_PATH, classpath);
+        return fileManager;
+    }
+
+    private static void closeQuietly(StandardJavaFileManager fileManager) {
+        try {
+            fileManager.close();
+        } catch (IOException e) {
+            // Only releases open jars
+        }
+    }
+
+    // The compiler errors, one per line, as javac reports them against the source
+    private static String errors(DiagnosticCollector<JavaFileObject> diagnostics) {
+        StringBuilder sb = new StringBuilder();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                sb.append("\nLine ").append(diagnostic.getLineNumber()).append(": ")
+                  .append(diagnostic.getMessage(Locale.ROOT));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The compiled classes by binary name, or the error, and the time spent in javac.
+     */
+    public static final class Result {
+
+        private final Map<String, byte[]> classes;
+        private final String error;
+        private final long millis;
+
+        Result(Map<String, byte[]> classes, String error, long millis) {
+            this.classes = classes;
+            this.error = error;
+            this.millis = millis;
+        }
+
+        static Result failed(String error, long millis) {
+            return new Result(Collections.emptyMap(), error, millis);
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        public Map<String, byte[]> getClasses() {
+            return classes;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+}
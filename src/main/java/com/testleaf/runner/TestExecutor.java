@@ -1,120 +1,93 @@
 package com.testleaf.runner;
 
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
 import org.testng.TestListenerAdapter;
 import org.testng.TestNG;
-import org.testng.xml.XmlClass;
-import org.testng.xml.XmlSuite;
-import org.testng.xml.XmlTest;
 
-import javax.tools.*;
-import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
+/**
+ * Compiles a generated test class and runs it with TestNG. Compilation happens in memory
+ * (see TestCompiler) and the classes are loaded with a ByteArrayClassLoader. TestNG's
+ * output goes to a per-run directory under tests.run.output-dir, which is deleted once the
+ * results are read.
+ */
 @Service
+@RequiredArgsConstructor
 public class TestExecutor {
 
+    private final TestCompiler testCompiler;
+
+    @Value("${tests.run.output-dir:${java.io.tmpdir}/swagger-ra-web/testng}")
+    private String outputDir = System.getProperty("java.io.tmpdir") + "/swagger-ra-web/testng";
+
+    @PostConstruct
+    void init() throws IOException {
+        Path outputPath = Paths.get(outputDir);
+        if (!Files.isDirectory(outputPath)) {
+            return;
+        }
+        // Output of runs cut short by a crash; nothing reads it. Only the run directories go,
+        // the output dir is configurable and may be shared
+        try (DirectoryStream<Path> runDirs = Files.newDirectoryStream(outputPath, "run-*")) {
+            for (Path runDir : runDirs) {
+                FileSystemUtils.deleteRecursively(runDir);
+            }
+        }
+    }
+
     public TestResult runTests(String javaCode, String className) {
         TestResult result = new TestResult();
+        Path runDir = null;
         try {
-            // 1. Create Temporary Directory for Compiled Files
-            Path tempDir = Files.createTempDirectory("dynamic-tests-");
-            File sourceFile = new File(tempDir.toFile(), className + ".java");
-            
-            // 2. Write the Java Code to a File
-            try (PrintWriter out = new PrintWriter(sourceFile)) {
-                out.println(javaCode);
+            // 1. Compile in memory with a warm compiler
+            TestCompiler.Result compiled = testCompiler.compile(className, javaCode);
+            result.setCompileTimeMs(compiled.getMillis());
+            if (!compiled.isSuccess()) {
+                result.setError(compiled.getError());
+                return result;
             }
-            System.out.println("✅ Java source file created: " + sourceFile.getAbsolutePath());
-
-            // 3. Prepare the Java Compiler
-            JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-            if (compiler == null) {
-                result.setError("❌ No Java compiler available. Ensure you run on a JDK, not a JRE.");
+            Map<String, byte[]> classes = compiled.getClasses();
+            System.out.println("✅ Compilation successful in " + compiled.getMillis() + " ms! "
+                    + classes.size() + " class(es) compiled in memory");
+
+            // 2. Load and Run Tests
+            ClassLoader testClassLoader = new ByteArrayClassLoader(classes, getClass().getClassLoader());
+
+            Class<?> testClass;
+            try {
+                testClass = Class.forName("automation.tests." + className, true, testClassLoader);
+                System.out.println("✅ Successfully loaded class: " + testClass.getName());
+            } catch (ClassNotFoundException e) {
+                result.setError("❌ Class not found in classpath: " + className);
                 return result;
             }
 
-            StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
-            Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjects(sourceFile);
-
-            // 4. Build a full classpath string
-            //    (1) system classpath
-            //    (2) plus URLs from the current class loader (Spring Boot libs, Maven deps, etc.)
-            StringBuilder cpBuilder = new StringBuilder();
-
-            // (A) Start with the system classpath
-            String sysCp = System.getProperty("java.class.path");
-            cpBuilder.append(sysCp);
-
-            // (B) Add jars/urls from the current thread context or current class loader
-            ClassLoader cl = Thread.currentThread().getContextClassLoader();
-            if (cl instanceof URLClassLoader) {
-                for (URL url : ((URLClassLoader) cl).getURLs()) {
-                    cpBuilder.append(File.pathSeparator).append(url.getFile());
-                }
-            } else {
-                // fallback: try getClass().getClassLoader() if thread context is not a URLClassLoader
-                ClassLoader thisCl = getClass().getClassLoader();
-                if (thisCl instanceof URLClassLoader) {
-                    for (URL url : ((URLClassLoader) thisCl).getURLs()) {
-                        cpBuilder.append(File.pathSeparator).append(url.getFile());
-                    }
-                }
-            }
+            // Create TestNG; its reports are not served, so only the listener below collects results
+            Path outputPath = Files.createDirectories(Paths.get(outputDir));
+            runDir = Files.createTempDirectory(outputPath, "run-");
+            TestNG testng = new TestNG();
+            testng.setOutputDirectory(runDir.toString());
+            testng.setUseDefaultListeners(false);
 
-            // 5. Set compiler options
-            List<String> optionList = new ArrayList<>();
-            optionList.add("-classpath");
-            optionList.add(cpBuilder.toString());
-            optionList.add("-d");
-            optionList.add(tempDir.toFile().getAbsolutePath());
-
-            // 6. Compile the Java File
-            JavaCompiler.CompilationTask task = compiler.getTask(
-                    null, fileManager, null, optionList, null, compilationUnits);
-            boolean success = task.call();
-            fileManager.close();
-
-            if (!success) {
-                result.setError("❌ Compilation failed. Check your generated code for errors.");
-                return result;
-            }
-            System.out.println("✅ Compilation successful! Compiled class stored at: " + tempDir);
-
-            // 7. Load and Run Tests
-            URLClassLoader testClassLoader = new URLClassLoader(
-            	    new URL[]{tempDir.toUri().toURL()},
-            	    getClass().getClassLoader()
-            	);
-
-        	Class<?> testClass;
-        	try {
-        	    testClass = Class.forName("automation.tests." + className, true, testClassLoader);
-        	    System.out.println("✅ Successfully loaded class: " + testClass.getName());
-        	} catch (ClassNotFoundException e) {
-        	    result.setError("❌ Class not found in classpath: " + className);
-        	    return result;
-        	}
-
-        	// Create TestNG
-        	TestNG testng = new TestNG();
-        	testng.setOutputDirectory(tempDir.toFile().getAbsolutePath());
-
-        	// ⚠️ Instead of using XmlSuite/XmlTest:
-        	testng.setTestClasses(new Class[]{ testClass });
-
-        	// Add listener for capturing results
-        	TestListenerAdapter testListener = new TestListenerAdapter();
-        	testng.addListener(testListener);
-        	testng.run();
-
-            // 8. Gather Results
+            // ⚠️ Instead of using XmlSuite/XmlTest:
+            testng.setTestClasses(new Class<?>[]{ testClass });
+
+            // Add listener for capturing results
+            TestListenerAdapter testListener = new TestListenerAdapter();
+            testng.addListener(testListener);
+            testng.run();
+
+            // 3. Gather Results
             result.setPassedTests(testListener.getPassedTests().size());
             result.setFailedTests(testListener.getFailedTests().size());
             result.setSkippedTests(testListener.getSkippedTests().size());
@@ -131,6 +104,10 @@ public class TestExecutor {
 
         } catch (IOException e) {
             result.setError("❌ Error during execution: " + e.getMessage());
+        } finally {
+            if (runDir != null) {
+                FileSystemUtils.deleteRecursively(runDir.toFile());
+            }
         }
 
         return result;
@@ -142,6 +119,7 @@ public class TestExecutor {
         private int failedTests;
         private int skippedTests;
         private String error;
+        private long compileTimeMs;
 
         public int getPassedTests() { return passedTests; }
         public void setPassedTests(int passedTests) { this.passedTests = passedTests; }
@@ -151,5 +129,7 @@ public class TestExecutor {
         public void setSkippedTests(int skippedTests) { this.skippedTests = skippedTests; }
         public String getError() { return error; }
         public void setError(String error) { this.error = error; }
+        public long getCompileTimeMs() { return compileTimeMs; }
+        public void setCompileTimeMs(long compileTimeMs) { this.compileTimeMs = compileTimeMs; }
     }
 }
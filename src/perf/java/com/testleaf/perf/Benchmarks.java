@@ -0,0 +1,35 @@
+package com.testleaf.perf;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of the CPU-bound hot paths, always with the GC profiler, so every
+ * result comes with its allocation rate (gc.alloc.rate.norm is bytes per operation). Takes
+ * the usual JMH arguments, e.g. a benchmark regex and -p to pick parameters:
+ *
+ *  mvn -Pperf test-compile exec:exec -Dexec.executable=java \
+ *      -Dexec.args="-cp %classpath com.testleaf.perf.Benchmarks SwaggerParserBenchmark -p operations=1000"
+ *
+ * Benchmarks: SwaggerParserBenchmark, CodeExtractionBenchmark, ExcelExportBenchmark and
+ * TestCompilationBenchmark. They fork a JVM each, so run them through java -cp (as above)
+ * rather than exec:java.
+ */
+public final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class)
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,137 @@
+package com.testleaf.perf;
+
+/**
+ * Canned LLM answers and request inputs for the mock provider and the load test, shaped like
+ * what the real prompts produce.
+ */
+final class CannedPayloads {
+
+    private CannedPayloads() {
+    }
+
+    static String reasoning() {
+        return "<think>\n"
+                + "The user wants automated tests for the operations listed. I should cover the documented\n"
+                + "status codes, build the request bodies from the schemas and keep every test independent.\n"
+                + "</think>\n\n";
+    }
+
+    /**
+     * A fenced RestAssured/TestNG class with the given number of test methods.
+     */
+    static String java(String className, int tests) {
+        StringBuilder code = new StringBuilder();
+        code.append("Here are the generated tests.\n\n```java\n")
+                .append("package automation.tests;\n\n")
+                .append("import io.restassured.RestAssured;\n")
+                .append("import io.restassured.http.ContentType;\n")
+                .append("import org.testng.annotations.BeforeClass;\n")
+                .append("import org.testng.annotations.Test;\n\n")
+                .append("import static io.restassured.RestAssured.given;\n")
+                .append("import static org.hamcrest.Matchers.*;\n\n")
+                .append("public class ").append(className).append(" {\n\n")
+                .append("    @BeforeClass\n")
+                .append("    public void setUp() {\n")
+                .append("        RestAssured.baseURI = \"https://petstore3.swagger.io/api/v3\";\n")
+                .append("    }\n");
+        for (int i = 1; i <= tests; i++) {
+            code.append("\n    @Test\n")
+                    .append("    public void getPetById_returnsPet_").append(i).append("() {\n")
+                    .append("        given()\n")
+                    .append("            .contentType(ContentType.JSON)\n")
+                    .append("            .pathParam(\"petId\", ").append(i).append(")\n")
+                    .append("        .when()\n")
+                    .append("            .get(\"/pet/{petId}\")\n")
+                    .append("        .then()\n")
+                    .append("            .statusCode(anyOf(is(200), is(404)))\n")
+                    .append("            .contentType(ContentType.JSON);\n")
+                    .append("    }\n");
+        }
+        code.append("}\n```\n");
+        return code.toString();
+    }
+
+    static String typescript() {
+        return "```typescript\n"
+                + "import { test, expect } from '@playwright/test';\n\n"
+                + "test('login with valid credentials', async ({ page }) => {\n"
+                + "  await page.goto('https://login.salesforce.com');\n"
+                + "  await page.fill('#username', 'user@example.com');\n"
+                + "  await page.fill('#password', 'secret');\n"
+                + "  await page.click('#Login');\n"
+                + "  await expect(page).toHaveTitle(/Home/);\n"
+                + "});\n"
+                + "```\n";
+    }
+
+    static String testCases() {
+        return "```json\n"
+                + "{\n"
+                + "  \"testCases\": [\n"
+                + "    {\n"
+                + "      \"TC_No\": \"TC001\",\n"
+                + "      \"Test_Case_Description\": \"Verify login with valid credentials\",\n"
+                + "      \"Pre-requisites\": \"User must have valid credentials\",\n"
+                + "      \"Test_Steps\": \"1. Open login page\\n2. Enter valid username\\n3. Enter valid password\\n4. Click on Login\",\n"
+                + "      \"Actual_Result\": \"User is successfully logged in\",\n"
+                + "      \"Expected_Result\": \"User should be logged in successfully\",\n"
+                + "      \"Status\": \"Pending\"\n"
+                + "    },\n"
+                + "    {\n"
+                + "      \"TC_No\": \"TC002\",\n"
+                + "      \"Test_Case_Description\": \"Verify login with invalid credentials\",\n"
+                + "      \"Pre-requisites\": \"User must have an invalid set of credentials\",\n"
+                + "      \"Test_Steps\": \"1. Open login page\\n2. Enter invalid username\\n3. Enter invalid password\\n4. Click on Login\",\n"
+                + "      \"Actual_Result\": \"Error message displayed\",\n"
+                + "      \"Expected_Result\": \"User should receive an error message\",\n"
+                + "      \"Status\": \"Pending\"\n"
+                + "    }\n"
+                + "  ]\n"
+                + "}\n"
+                + "```\n";
+    }
+
+    // Inputs for the load test
+
+    static String apiDetails(int operations) {
+        StringBuilder details = new StringBuilder();
+        for (int i = 1; i <= operations; i++) {
+            details.append("Path: /pet/{petId").append(i).append("}\n")
+                    .append("Method: GET\n")
+                    .append("Summary: Find pet by ID\n")
+                    .append("Parameters: petId (path, integer, required)\n")
+                    .append("Responses: 200 (Pet), 400 (Invalid ID supplied), 404 (Pet not found)\n\n");
+        }
+        return details.toString();
+    }
+
+    static String seleniumCode() {
+        return "WebDriver driver = new ChromeDriver();\n"
+                + "driver.get(\"https://login.salesforce.com\");\n"
+                + "driver.findElement(By.id(\"username\")).sendKeys(\"user@example.com\");\n"
+                + "driver.findElement(By.id(\"password\")).sendKeys(\"secret\");\n"
+                + "driver.findElement(By.id(\"Login\")).click();\n"
+                + "Assert.assertTrue(driver.getTitle().contains(\"Home\"));\n"
+                + "driver.quit();\n";
+    }
+
+    /**
+     * A TestNG class that runs without network access, so /api/runTests measures the service
+     * (compile, load, run) and not a remote API.
+     */
+    static String runnableTest(String className) {
+        return "package automation.tests;\n\n"
+                + "import org.testng.Assert;\n"
+                + "import org.testng.annotations.Test;\n\n"
+                + "public class " + className + " {\n\n"
+                + "    @Test\n"
+                + "    public void addsNumbers() {\n"
+                + "        Assert.assertEquals(1 + 1, 2);\n"
+                + "    }\n\n"
+                + "    @Test\n"
+                + "    public void joinsStrings() {\n"
+                + "        Assert.assertEquals(String.join(\"-\", \"a\", \"b\"), \"a-b\");\n"
+                + "    }\n"
+                + "}\n";
+    }
+}
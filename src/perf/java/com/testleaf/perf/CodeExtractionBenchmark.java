@@ -0,0 +1,70 @@
+package com.testleaf.perf;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.testleaf.llm.TestCodeGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TestCodeGenerator extraction on chat completion JSON shaped like the provider's: a
+ * reasoning section followed by the fenced code. The test count sets the size of the Java
+ * class, from a typical answer to one generated for a whole spec.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodeExtractionBenchmark {
+
+    @Param({"3", "50", "500"})
+    private int tests;
+
+    private final TestCodeGenerator generator = new TestCodeGenerator();
+    private String javaCompletion;
+    private String typescriptCompletion;
+
+    @Setup
+    public void buildCompletions() throws JsonProcessingException {
+        javaCompletion = completion(CannedPayloads.reasoning() + CannedPayloads.java("GeneratedApiTests", tests));
+        typescriptCompletion = completion(CannedPayloads.reasoning() + CannedPayloads.typescript());
+    }
+
+    @Benchmark
+    public String extractJavaCode() {
+        return generator.extractJavaCode(javaCompletion);
+    }
+
+    @Benchmark
+    public String extractTypescriptCode() {
+        return generator.extractTypescriptCode(typescriptCompletion);
+    }
+
+    private static String completion(String content) throws JsonProcessingException {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode response = mapper.createObjectNode();
+        response.put("id", "chatcmpl-benchmark");
+        response.put("object", "chat.completion");
+        response.put("model", "deepseek-r1-distill-llama-70b");
+        ObjectNode choice = response.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("message").put("role", "assistant").put("content", content);
+        choice.put("finish_reason", "stop");
+        response.putObject("usage").put("prompt_tokens", 1200).put("completion_tokens", content.length() / 4);
+        return mapper.writeValueAsString(response);
+    }
+}
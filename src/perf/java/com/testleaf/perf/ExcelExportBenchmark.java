@@ -0,0 +1,79 @@
+package com.testleaf.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.testleaf.controller.TestCaseExcelConvertor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TestCaseExcelConvertor.downloadTestCases from the parsed request to the xlsx bytes. The
+ * request model is package-private to the controller, so the request is deserialized from
+ * a JSON body by Jackson, as the controller receives it, and the endpoint is invoked
+ * reflectively (a negligible cost next to the workbook). The 100k-row workbook is built in
+ * memory, hence the larger heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ExcelExportBenchmark {
+
+    @Param({"100", "10000", "100000"})
+    private int rows;
+
+    private final TestCaseExcelConvertor convertor = new TestCaseExcelConvertor();
+    private Method downloadTestCases;
+    private Object request;
+
+    @Setup
+    public void buildTestCases() throws IOException {
+        downloadTestCases = Arrays.stream(TestCaseExcelConvertor.class.getMethods())
+                .filter(method -> method.getName().equals("downloadTestCases"))
+                .findFirst()
+                .orElseThrow();
+        ObjectMapper mapper = new ObjectMapper();
+        request = mapper.readValue(mapper.writeValueAsBytes(body(mapper, rows)), downloadTestCases.getParameterTypes()[0]);
+    }
+
+    @Benchmark
+    public byte[] downloadTestCases() throws IllegalAccessException, InvocationTargetException {
+        return (byte[]) ((ResponseEntity<?>) downloadTestCases.invoke(convertor, request)).getBody();
+    }
+
+    // The JSON body the UI posts to /api/downloadTestCases
+    static ObjectNode body(ObjectMapper mapper, int rows) {
+        ObjectNode body = mapper.createObjectNode();
+        ArrayNode testCases = body.putArray("testCases");
+        for (int i = 1; i <= rows; i++) {
+            testCases.addObject()
+                    .put("TC_No", String.format("TC%05d", i))
+                    .put("Test_Case_Description", "Verify login with valid credentials, variant " + i)
+                    .put("Pre-requisites", "User must have valid credentials")
+                    .put("Test_Steps", "1. Open login page\n2. Enter valid username\n3. Enter valid password\n4. Click on Login")
+                    .put("Actual_Result", "User is successfully logged in")
+                    .put("Expected_Result", "User should be logged in successfully")
+                    .put("Status", "Pending");
+        }
+        return body;
+    }
+}
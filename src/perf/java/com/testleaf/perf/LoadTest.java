@@ -0,0 +1,261 @@
+package com.testleaf.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * End-to-end load test: drives the service's LLM and test-run endpoints at a fixed concurrency
+ * and reports throughput and latency percentiles per endpoint. Run it against an instance
+ * whose llm.api.url points at MockLLMServer, so no provider quota is spent:
+ *
+ *  mvn -Pperf test-compile exec:java -Dexec.mainClass=com.testleaf.perf.LoadTest \
+ *      -Dexec.args="--target=http://localhost:8080 --concurrency=16 --duration=60s"
+ *
+ * Options (all optional):
+ *  --target=http://localhost:8080
+ *  --concurrency=8       requests in flight at any time (one worker each)
+ *  --duration=60s        how long to measure (s or m suffix), after
+ *  --warmup=10s          a warm-up phase whose results are discarded
+ *  --scenarios=generateTests,generateTestCases,convert,runTests   taken in turn by every worker
+ *  --operations=3        operations in the generateTests prompt
+ *  --unique=true         make every request distinct and skip the LLM response cache, so each
+ *                        one reaches the provider (false measures the cache and coalescing)
+ */
+public class LoadTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final String target;
+    private final int operations;
+    private final boolean unique;
+    private final HttpClient client;
+    private final AtomicLong sequence = new AtomicLong();
+
+    LoadTest(Map<String, String> options) {
+        target = options.getOrDefault("target", "http://localhost:8080").replaceAll("/+$", "");
+        operations = Integer.parseInt(options.getOrDefault("operations", "3"));
+        unique = Boolean.parseBoolean(options.getOrDefault("unique", "true"));
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = MockLLMServer.parseOptions(args);
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "8"));
+        Duration duration = duration(options.getOrDefault("duration", "60s"));
+        Duration warmup = duration(options.getOrDefault("warmup", "10s"));
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String name : options.getOrDefault("scenarios", "generateTests,generateTestCases,convert,runTests").split(",")) {
+            scenarios.add(Scenario.named(name.trim()));
+        }
+
+        LoadTest test = new LoadTest(options);
+        System.out.println("🚀 " + concurrency + " workers against " + test.target + " for " + duration.toSeconds()
+                + "s (after " + warmup.toSeconds() + "s warm-up): " + scenarios);
+        Map<Scenario, Recorder> results = test.run(scenarios, concurrency, warmup, duration);
+        report(results, duration);
+    }
+
+    Map<Scenario, Recorder> run(List<Scenario> scenarios, int concurrency, Duration warmup, Duration duration)
+            throws InterruptedException {
+        Map<Scenario, Recorder> results = new LinkedHashMap<>();
+        for (Scenario scenario : scenarios) {
+            results.put(scenario, new Recorder());
+        }
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        CountDownLatch done = new CountDownLatch(concurrency);
+        for (int w = 0; w < concurrency; w++) {
+            int worker = w;
+            Thread thread = new Thread(() -> {
+                try {
+                    // Workers start at different scenarios so the mix is even from the first second
+                    for (int i = worker; System.nanoTime() < end; i++) {
+                        Scenario scenario = scenarios.get(i % scenarios.size());
+                        long sent = System.nanoTime();
+                        int status = send(scenario);
+                        long finished = System.nanoTime();
+                        if (sent >= measureFrom && finished <= end) {
+                            results.get(scenario).record(status, finished - sent);
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "load-" + w);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        return results;
+    }
+
+    // HTTP status, or 0 when the request failed without one
+    private int send(Scenario scenario) {
+        long n = sequence.incrementAndGet();
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(target + scenario.path))
+                    .timeout(Duration.ofMinutes(10))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(MAPPER.writeValueAsString(scenario.body.apply(this).apply(n))));
+            if (unique) {
+                request.header("Cache-Control", "no-cache");
+            }
+            return client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (Exception e) {
+            return 0;
+        }
+    }
+
+    // Appended to free-text inputs so concurrent requests are not coalesced into one LLM call
+    private String nonce(long n) {
+        return unique ? " (load test request " + n + ")" : "";
+    }
+
+    private Function<Long, ObjectNode> generateTests() {
+        return n -> {
+            ObjectNode body = MAPPER.createObjectNode();
+            body.put("apiDetails", CannedPayloads.apiDetails(operations) + nonce(n));
+            body.putArray("testTypes").add("positive").add("negative");
+            return body;
+        };
+    }
+
+    private Function<Long, ObjectNode> generateTestCases() {
+        return n -> {
+            ObjectNode body = MAPPER.createObjectNode();
+            body.putObject("testType").put("positive", true).put("negative", true).put("edge", false);
+            body.put("userStoryDescription", "As a user, I want to log in to Salesforce so that I can manage leads." + nonce(n));
+            body.put("applicationUrl", "https://login.salesforce.com");
+            body.put("acceptanceCriteria", "1. Valid credentials log the user in. 2. Invalid credentials show an error.");
+            body.put("epicDescription", "");
+            return body;
+        };
+    }
+
+    private Function<Long, ObjectNode> convert() {
+        return n -> MAPPER.createObjectNode().put("seleniumCode", CannedPayloads.seleniumCode() + "// " + nonce(n) + "\n");
+    }
+
+    private Function<Long, ObjectNode> runTests() {
+        return n -> MAPPER.createObjectNode().put("javaCode", CannedPayloads.runnableTest("LoadTest" + n));
+    }
+
+    enum Scenario {
+        GENERATE_TESTS("generateTests", "/api/generateTests", LoadTest::generateTests),
+        GENERATE_TEST_CASES("generateTestCases", "/api/generateTestCases", LoadTest::generateTestCases),
+        CONVERT("convert", "/api/convert/seleniumToPlaywright", LoadTest::convert),
+        RUN_TESTS("runTests", "/api/runTests", LoadTest::runTests);
+
+        final String label;
+        final String path;
+        final Function<LoadTest, Function<Long, ObjectNode>> body;
+
+        Scenario(String label, String path, Function<LoadTest, Function<Long, ObjectNode>> body) {
+            this.label = label;
+            this.path = path;
+            this.body = body;
+        }
+
+        static Scenario named(String label) {
+            for (Scenario scenario : values()) {
+                if (scenario.label.equals(label)) {
+                    return scenario;
+                }
+            }
+            throw new IllegalArgumentException("Unknown scenario: " + label);
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    /**
+     * Latencies and status counts of one scenario.
+     */
+    static final class Recorder {
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private final Map<Integer, Integer> statuses = new TreeMap<>();
+
+        synchronized void record(int status, long nanos) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = nanos;
+            statuses.merge(status, 1, Integer::sum);
+        }
+
+        synchronized long[] sorted() {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        synchronized int errors() {
+            return statuses.entrySet().stream()
+                    .filter(e -> e.getKey() < 200 || e.getKey() >= 300)
+                    .mapToInt(Map.Entry::getValue)
+                    .sum();
+        }
+
+        synchronized Map<Integer, Integer> statuses() {
+            return new TreeMap<>(statuses);
+        }
+    }
+
+    private static void report(Map<Scenario, Recorder> results, Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        System.out.printf("%n%-18s %8s %7s %9s %9s %9s %9s %9s  %s%n",
+                "scenario", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "statuses");
+        for (Map.Entry<Scenario, Recorder> entry : results.entrySet()) {
+            Recorder recorder = entry.getValue();
+            long[] sorted = recorder.sorted();
+            System.out.printf("%-18s %8d %7d %9.2f %9.0f %9.0f %9.0f %9.0f  %s%n",
+                    entry.getKey(), sorted.length, recorder.errors(), sorted.length / seconds,
+                    percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6, recorder.statuses());
+        }
+    }
+
+    // Nearest-rank percentile in milliseconds
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    private static Duration duration(String value) {
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(value.endsWith("s") ? value.substring(0, value.length() - 1) : value));
+    }
+}
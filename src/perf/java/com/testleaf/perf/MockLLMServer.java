@@ -0,0 +1,300 @@
+package com.testleaf.perf;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Stand-in for an OpenAI-compatible chat completions endpoint, so the service can be load
+ * tested without spending provider quota. Point llm.api.url at it:
+ *
+ *  mvn -Pperf test-compile exec:java -Dexec.mainClass=com.testleaf.perf.MockLLMServer \
+ *      -Dexec.args="--port=9911 --latency=lognormal:8000:90000 --rate-429=0.02"
+ *  java -jar target/swagger-ra-web-1.0.0.jar --llm.api.url=http://localhost:9911/v1/chat/completions
+ *
+ * Every POST is answered as a chat completion after a latency drawn from the configured
+ * distribution. The canned payload follows the prompt: a fenced Java test class (named as
+ * the prompt asks), Playwright TypeScript for conversions, or the JSON test cases. With
+ * "stream": true the same content is sent as SSE chunks, the first one after the
+ * time-to-first-token share of the latency. A usage block is included either way.
+ *
+ * Options (all optional):
+ *  --port=9911
+ *  --latency=fixed:MS | uniform:MIN:MAX | lognormal:MEDIAN:P99   (default lognormal:2000:15000)
+ *  --ttft=0.1            share of the latency before the first streamed chunk
+ *  --rate-429=0          share of requests answered 429 with Retry-After
+ *  --rate-5xx=0          share of requests answered 500/502/503
+ *  --tests=3             test methods in the generated Java class
+ *  --reasoning=true      prefix completions with a &lt;think&gt; section, as deepseek-r1 does
+ *
+ * GET /stats returns the request counters.
+ */
+public class MockLLMServer {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern CLASS_NAME = Pattern.compile("Name the test class (\\w+)");
+    private static final int STREAM_CHUNK = 16;
+
+    private final Latency latency;
+    private final double ttft;
+    private final double rate429;
+    private final double rate5xx;
+    private final int tests;
+    private final boolean reasoning;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong streamed = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    MockLLMServer(Map<String, String> options) {
+        latency = Latency.parse(options.getOrDefault("latency", "lognormal:2000:15000"));
+        ttft = Double.parseDouble(options.getOrDefault("ttft", "0.1"));
+        rate429 = Double.parseDouble(options.getOrDefault("rate-429", "0"));
+        rate5xx = Double.parseDouble(options.getOrDefault("rate-5xx", "0"));
+        tests = Integer.parseInt(options.getOrDefault("tests", "3"));
+        reasoning = Boolean.parseBoolean(options.getOrDefault("reasoning", "true"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseOptions(args);
+        int port = Integer.parseInt(options.getOrDefault("port", "9911"));
+        MockLLMServer mock = new MockLLMServer(options);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        // Handlers mostly sleep; one thread per open request, like a real provider's front end
+        ExecutorService executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/stats", mock::stats);
+        server.createContext("/", mock::handle);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println("📊 " + mock.counters())));
+        System.out.println("🧪 Mock LLM listening on http://localhost:" + port + "/v1/chat/completions (latency "
+                + mock.latency + ")");
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(eq > 0 ? arg.substring(2, eq) : arg.substring(2), eq > 0 ? arg.substring(eq + 1) : "true");
+        }
+        return options;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                // Connection warm-up (HEAD) and anything else
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            JsonNode request = MAPPER.readTree(exchange.getRequestBody().readAllBytes());
+            requests.incrementAndGet();
+            long millis = latency.sample();
+
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < rate429) {
+                throttled.incrementAndGet();
+                sleep(Math.min(millis, 200));
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, "{\"error\":{\"message\":\"Rate limit reached (mock)\",\"type\":\"rate_limit\"}}");
+                return;
+            }
+            if (roll < rate429 + rate5xx) {
+                failed.incrementAndGet();
+                sleep(millis / 2);
+                int[] statuses = {500, 502, 503};
+                send(exchange, statuses[ThreadLocalRandom.current().nextInt(statuses.length)],
+                        "{\"error\":{\"message\":\"Upstream error (mock)\",\"type\":\"server_error\"}}");
+                return;
+            }
+
+            String content = content(request);
+            int promptTokens = estimateTokens(request.toString());
+            int completionTokens = estimateTokens(content);
+            if (request.path("stream").asBoolean()) {
+                streamed.incrementAndGet();
+                stream(exchange, request, content, millis, promptTokens, completionTokens);
+            } else {
+                sleep(millis);
+                ObjectNode response = completion(request, promptTokens, completionTokens);
+                ObjectNode choice = response.putArray("choices").addObject();
+                choice.put("index", 0);
+                choice.putObject("message").put("role", "assistant").put("content", content);
+                choice.put("finish_reason", "stop");
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                send(exchange, 200, MAPPER.writeValueAsString(response));
+            }
+        } catch (IOException e) {
+            // The client went away (e.g. a hedged or cancelled call); nothing to answer
+        }
+    }
+
+    private void stream(HttpExchange exchange, JsonNode request, String content, long millis,
+                        int promptTokens, int completionTokens) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        long first = (long) (millis * ttft);
+        sleep(first);
+        int chunks = Math.max(1, (content.length() + STREAM_CHUNK - 1) / STREAM_CHUNK);
+        long perChunk = (millis - first) / chunks;
+        for (int i = 0; i < content.length(); i += STREAM_CHUNK) {
+            if (i > 0) {
+                sleep(perChunk);
+            }
+            ObjectNode chunk = completion(request, promptTokens, completionTokens);
+            chunk.remove("usage");
+            chunk.putArray("choices").addObject().put("index", 0)
+                    .putObject("delta").put("content", content.substring(i, Math.min(content.length(), i + STREAM_CHUNK)));
+            event(out, MAPPER.writeValueAsString(chunk));
+        }
+        ObjectNode last = completion(request, promptTokens, completionTokens);
+        last.putArray("choices").addObject().put("index", 0).put("finish_reason", "stop").putObject("delta");
+        event(out, MAPPER.writeValueAsString(last));
+        event(out, "[DONE]");
+    }
+
+    private static void event(OutputStream out, String data) throws IOException {
+        out.write(("data: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static ObjectNode completion(JsonNode request, int promptTokens, int completionTokens) {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("id", "chatcmpl-mock-" + Long.toHexString(ThreadLocalRandom.current().nextLong()));
+        response.put("object", "chat.completion");
+        response.put("created", System.currentTimeMillis() / 1000);
+        response.put("model", request.path("model").asText("mock"));
+        ObjectNode usage = response.putObject("usage");
+        usage.put("prompt_tokens", promptTokens);
+        usage.put("completion_tokens", completionTokens);
+        usage.put("total_tokens", promptTokens + completionTokens);
+        return response;
+    }
+
+    // The canned answer that fits the prompt
+    private String content(JsonNode request) {
+        StringBuilder prompt = new StringBuilder();
+        for (JsonNode message : request.path("messages")) {
+            prompt.append(message.path("content").asText()).append('\n');
+        }
+        String text = prompt.toString();
+        String answer;
+        if (text.contains("Playwright TypeScript")) {
+            answer = CannedPayloads.typescript();
+        } else if (text.contains("\"testCases\"")) {
+            answer = CannedPayloads.testCases();
+        } else {
+            Matcher matcher = CLASS_NAME.matcher(text);
+            answer = CannedPayloads.java(matcher.find() ? matcher.group(1) : "GeneratedApiTests", tests);
+        }
+        return reasoning ? CannedPayloads.reasoning() + answer : answer;
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            send(exchange, 200, MAPPER.writeValueAsString(counters()));
+        }
+    }
+
+    private Map<String, Long> counters() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put("requests", requests.get());
+        counters.put("streamed", streamed.get());
+        counters.put("throttled", throttled.get());
+        counters.put("failed", failed.get());
+        return counters;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static int estimateTokens(String text) {
+        return (text.length() + 3) / 4;
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Response latency in milliseconds. Provider latency is long-tailed, which a log-normal
+     * given by its median and p99 models well enough.
+     */
+    abstract static class Latency {
+
+        // Standard normal quantile of 0.99
+        private static final double Z_99 = 2.326348;
+
+        abstract long sample();
+
+        static Latency parse(String spec) {
+            String[] parts = spec.split(":");
+            switch (parts[0]) {
+                case "fixed": {
+                    long millis = Long.parseLong(parts[1]);
+                    return describe(() -> millis, spec);
+                }
+                case "uniform": {
+                    long min = Long.parseLong(parts[1]);
+                    long max = Long.parseLong(parts[2]);
+                    return describe(() -> ThreadLocalRandom.current().nextLong(min, max + 1), spec);
+                }
+                case "lognormal": {
+                    double mu = Math.log(Double.parseDouble(parts[1]));
+                    double sigma = (Math.log(Double.parseDouble(parts[2])) - mu) / Z_99;
+                    return describe(() -> Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian())), spec);
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown latency distribution: " + spec
+                            + " (fixed:MS, uniform:MIN:MAX or lognormal:MEDIAN:P99)");
+            }
+        }
+
+        private static Latency describe(LongSupplier sampler, String spec) {
+            return new Latency() {
+                @Override
+                long sample() {
+                    return sampler.getAsLong();
+                }
+
+                @Override
+                public String toString() {
+                    return spec;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.testleaf.perf;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import com.testleaf.parser.OperationCatalog;
+import com.testleaf.parser.SchemaResolver;
+import com.testleaf.parser.SwaggerParser;
+import io.swagger.parser.OpenAPIParser;
+import io.swagger.v3.oas.models.OpenAPI;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SwaggerParser.parseSwagger on generated OpenAPI 3 specs, JSON and YAML, from a handful of
+ * operations to a large vendor-sized spec. Every operation references shared component
+ * schemas, so $ref resolution is part of the cost.
+ *
+ * mode=baseline parses the way the service did before ingestion was streamed: the document
+ * decoded to a String, YAML loaded by SnakeYAML and re-serialized as JSON, then
+ * OpenAPIParser.readContents. Compare the two with -p mode=streaming,baseline;
+ * gc.alloc.rate.norm is the heap each parse allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SwaggerParserBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int operations;
+
+    @Param({"json", "yaml"})
+    private String format;
+
+    @Param({"streaming", "baseline"})
+    private String mode;
+
+    private final SwaggerParser parser = new SwaggerParser();
+    private byte[] spec;
+    private ByteBuffer content;
+
+    @Setup(Level.Trial)
+    public void generateSpec() throws IOException {
+        ObjectMapper mapper = "yaml".equals(format) ? new ObjectMapper(new YAMLFactory()) : new ObjectMapper();
+        spec = mapper.writeValueAsBytes(spec(mapper, operations));
+    }
+
+    @Setup(Level.Invocation)
+    public void rewind() {
+        content = ByteBuffer.wrap(spec);
+    }
+
+    @Benchmark
+    public String parseSwagger() {
+        return "baseline".equals(mode) ? parseBaseline(content) : parser.parseSwagger(content);
+    }
+
+    private static String parseBaseline(ByteBuffer content) {
+        byte[] bytes = new byte[content.remaining()];
+        content.get(bytes);
+        String fileContent = new String(bytes);
+        if (!fileContent.trim().startsWith("{")) {
+            // The code point limit is raised so the large specs load at all (the default is 3 MB)
+            LoaderOptions loaderOptions = new LoaderOptions();
+            loaderOptions.setCodePointLimit(Integer.MAX_VALUE);
+            Map<String, Object> yamlMap = new Yaml(loaderOptions).load(fileContent);
+            try {
+                fileContent = new ObjectMapper().writeValueAsString(yamlMap);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        OpenAPI openAPI = new OpenAPIParser().readContents(fileContent, null, null).getOpenAPI();
+        return OperationCatalog.from(openAPI, new SchemaResolver(openAPI.getComponents())).toApiDetails();
+    }
+
+    // Operations spread over paths (four methods each) and a schema per ten operations
+    static ObjectNode spec(ObjectMapper mapper, int operations) {
+        ObjectNode root = mapper.createObjectNode();
+        root.put("openapi", "3.0.3");
+        root.putObject("info").put("title", "Generated API").put("version", "1.0.0");
+        root.putArray("servers").addObject().put("url", "https://api.example.com/v1");
+
+        ObjectNode schemas = root.putObject("components").putObject("schemas");
+        ObjectNode paths = root.putObject("paths");
+        String[] methods = {"get", "put", "post", "delete"};
+        for (int i = 0; i < operations; i++) {
+            int resource = i / methods.length;
+            String schema = "Resource" + (i / 10);
+            if (!schemas.has(schema)) {
+                ObjectNode properties = schemas.putObject(schema).put("type", "object").putObject("properties");
+                properties.putObject("id").put("type", "integer").put("format", "int64");
+                properties.putObject("name").put("type", "string");
+                properties.putObject("status").put("type", "string").putArray("enum").add("available").add("sold");
+                properties.putObject("tags").put("type", "array").putObject("items").put("type", "string");
+            }
+            ObjectNode path = (ObjectNode) paths.get("/resources" + resource + "/{id}");
+            if (path == null) {
+                path = paths.putObject("/resources" + resource + "/{id}");
+            }
+            ObjectNode operation = path.putObject(methods[i % methods.length]);
+            operation.put("operationId", "operation" + i);
+            operation.put("summary", "Operation " + i + " on resource " + resource);
+            ArrayNode parameters = operation.putArray("parameters");
+            parameters.addObject().put("name", "id").put("in", "path").put("required", true)
+                    .putObject("schema").put("type", "integer");
+            parameters.addObject().put("name", "verbose").put("in", "query")
+                    .putObject("schema").put("type", "boolean");
+            if (i % methods.length == 1 || i % methods.length == 2) {
+                operation.putObject("requestBody").put("required", true).putObject("content")
+                        .putObject("application/json").putObject("schema").put("$ref", "#/components/schemas/" + schema);
+            }
+            ObjectNode responses = operation.putObject("responses");
+            responses.putObject("200").put("description", "OK").putObject("content")
+                    .putObject("application/json").putObject("schema").put("$ref", "#/components/schemas/" + schema);
+            responses.putObject("404").put("description", "Not found");
+        }
+        return root;
+    }
+}
@@ -0,0 +1,44 @@
+package com.testleaf.perf;
+
+import com.testleaf.runner.CompilationClasspath;
+import com.testleaf.runner.TestCompiler;
+import com.testleaf.runner.TestExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TestExecutor.runTests on a small TestNG class that needs no network, so the time is the
+ * service's own: compiling, loading and running. The compiler is kept warm between calls, as
+ * in the service (the classpath and the first file manager are set up by the first call).
+ * Compilation dominates; the class name changes every call, as it does for generated tests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TestCompilationBenchmark {
+
+    private final TestExecutor executor = new TestExecutor(new TestCompiler(new CompilationClasspath(), 1));
+    private long sequence;
+
+    @Benchmark
+    public TestExecutor.TestResult runTests() {
+        String className = "BenchmarkTest" + sequence++;
+        TestExecutor.TestResult result = executor.runTests(CannedPayloads.runnableTest(className), className);
+        if (result.getError() != null) {
+            throw new IllegalStateException(result.getError());
+        }
+        return result;
+    }
+}